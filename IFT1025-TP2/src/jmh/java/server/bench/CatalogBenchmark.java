@@ -0,0 +1,79 @@
+package server.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import server.CourseCatalog;
+import server.models.Course;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure le chargement du catalogue des cours et le chemin de CHARGER et de TROUVER, pour des catalogues de 10 à un
+ * million de cours.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogBenchmark {
+    private static final long NO_RELOAD = TimeUnit.HOURS.toMillis(1);
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int courses;
+
+    private Path file;
+    private CourseCatalog catalog;
+    private String lastCode;
+
+    @Setup
+    public void setup() throws IOException {
+        file = SyntheticCatalog.writeFile(courses);
+        catalog = new CourseCatalog(file.toString(), NO_RELOAD);
+        lastCode = SyntheticCatalog.course(courses - 1).getCode();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Lecture complète de cours.txt et construction des index.
+     */
+    @Benchmark
+    public CourseCatalog.Snapshot load() throws IOException {
+        return new CourseCatalog(file.toString(), NO_RELOAD).snapshot();
+    }
+
+    /**
+     * Ce que fait handleLoadCourses : obtenir la liste d'une session et la copier pour la réponse.
+     */
+    @Benchmark
+    public ArrayList<Course> loadCourses() {
+        return new ArrayList<>(catalog.getCourses(SyntheticCatalog.SESSIONS[0]));
+    }
+
+    /**
+     * Ce que fait handleFindCourse : chercher un cours par son code.
+     */
+    @Benchmark
+    public Course findCourse() {
+        return catalog.findCourse(lastCode);
+    }
+}
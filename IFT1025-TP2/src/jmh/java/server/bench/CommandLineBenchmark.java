@@ -0,0 +1,45 @@
+package server.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import server.ClientHandler;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure l'analyse d'une ligne de commande reçue par le serveur, avec String.split et String.join (l'ancienne
+ * analyse, reproduite ici) et avec FieldCursor. Lancé avec « -prof gc », JMH affiche aussi les octets alloués par
+ * opération (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandLineBenchmark {
+    @Param({"INSCRIRE", "CHARGER Automne", "TROUVER IFT1025 IFT2255 IFT1227 IFT2256"})
+    public String line;
+
+    @Benchmark
+    public void splitCommandLine(Blackhole blackhole) {
+        String[] parts = line.split(" ");
+        blackhole.consume(parts[0]);
+        blackhole.consume(String.join(" ", Arrays.asList(parts).subList(1, parts.length)));
+    }
+
+    @Benchmark
+    public ClientHandler.CommandLine processCommandLine() {
+        return ClientHandler.processCommandLine(line);
+    }
+}
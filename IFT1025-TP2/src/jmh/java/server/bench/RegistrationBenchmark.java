@@ -0,0 +1,71 @@
+package server.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import server.RegistrationJournal;
+import server.models.RegistrationForm;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure le chemin d'ajout d'une inscription, avec huit connexions concurrentes : le journal à écrivain unique, selon
+ * sa politique de durabilité, et l'ancienne écriture directe (un fichier ouvert par formulaire, sans fsync).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class RegistrationBenchmark {
+    @Param({"NONE", "BATCH"})
+    public RegistrationJournal.Durability durability;
+
+    private Path file;
+    private RegistrationJournal journal;
+    private RegistrationForm form;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("inscription-", ".txt");
+        journal = new RegistrationJournal(file.toString(), durability, 0);
+        form = SyntheticCatalog.form(7);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void journal() {
+        journal.submit(form).join();
+    }
+
+    @Benchmark
+    public void directAppend() throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file.toFile(), true)))) {
+            writer.write(RegistrationJournal.toLine(form));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package server.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import server.models.Course;
+import server.models.RegistrationForm;
+import server.protocol.BinaryCodec;
+import server.protocol.EncodedPayload;
+import server.protocol.Request;
+import server.protocol.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare la sérialisation Java et le format binaire pour une réponse à CHARGER et une requête INSCRIRE. La taille des
+ * messages produits est affichée à la préparation de chaque essai. Au-delà d'environ 500 000 cours, une réponse
+ * dépasse la taille maximale d'une trame binaire ; ces tailles relèvent de la pagination.
+ * encodeCachedCourses mesure le chemin du cache des réponses encodées, où seul l'en-tête de la trame est produit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int courses;
+
+    private Response coursesResponse;
+    private EncodedPayload cachedCourses;
+    private long nextId;
+    private Request registrationRequest;
+    private byte[] serializedCourses;
+    private byte[] encodedCourses;
+    private byte[] serializedForm;
+    private byte[] encodedForm;
+
+    @Setup
+    public void setup() throws IOException {
+        ArrayList<Course> list = SyntheticCatalog.courses(courses);
+        RegistrationForm form = SyntheticCatalog.form(42);
+        coursesResponse = new Response(1, Response.OK, list);
+        cachedCourses = new EncodedPayload(Response.OK, list);
+        registrationRequest = new Request(1, "INSCRIRE", form);
+        serializedCourses = serialize(coursesResponse);
+        encodedCourses = BinaryCodec.encode(coursesResponse);
+        serializedForm = serialize(registrationRequest);
+        encodedForm = BinaryCodec.encode(registrationRequest);
+        System.out.printf("%n%d cours : sérialisation %d o, binaire %d o ; INSCRIRE : %d o, %d o%n", courses,
+                serializedCourses.length, encodedCourses.length, serializedForm.length, encodedForm.length);
+    }
+
+    @Benchmark
+    public byte[] serializeCourses() throws IOException {
+        return serialize(coursesResponse);
+    }
+
+    @Benchmark
+    public byte[] encodeCourses() {
+        return BinaryCodec.encode(coursesResponse);
+    }
+
+    @Benchmark
+    public ByteBuffer[] encodeCachedCourses() {
+        return BinaryCodec.encodeBuffers(cachedCourses.toResponse(++nextId));
+    }
+
+    @Benchmark
+    public Object deserializeCourses() throws Exception {
+        return deserialize(serializedCourses);
+    }
+
+    @Benchmark
+    public Response decodeCourses() throws IOException {
+        return BinaryCodec.decodeResponse(body(encodedCourses));
+    }
+
+    @Benchmark
+    public byte[] serializeForm() throws IOException {
+        return serialize(registrationRequest);
+    }
+
+    @Benchmark
+    public byte[] encodeForm() {
+        return BinaryCodec.encode(registrationRequest);
+    }
+
+    @Benchmark
+    public Object deserializeForm() throws Exception {
+        return deserialize(serializedForm);
+    }
+
+    @Benchmark
+    public Request decodeForm() throws IOException {
+        return BinaryCodec.decodeRequest(body(encodedForm));
+    }
+
+    private static ByteBuffer body(byte[] frame) {
+        return ByteBuffer.wrap(frame, 4, frame.length - 4);
+    }
+
+    private static byte[] serialize(Object message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
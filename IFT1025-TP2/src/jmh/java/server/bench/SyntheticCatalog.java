@@ -0,0 +1,55 @@
+package server.bench;
+
+import server.models.Course;
+import server.models.RegistrationForm;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Génère des catalogues de cours synthétiques pour les bancs d'essai, dans le format de cours.txt.
+ */
+final class SyntheticCatalog {
+    static final String[] SESSIONS = {"Automne", "Hiver", "Ete"};
+
+    private SyntheticCatalog() {
+    }
+
+    static Course course(int i) {
+        return new Course("Cours_synthetique_" + i, "IFT" + (10000 + i), SESSIONS[i % SESSIONS.length]);
+    }
+
+    /**
+     * Retourne n cours de la même session, comme la réponse à CHARGER.
+     */
+    static ArrayList<Course> courses(int n) {
+        ArrayList<Course> courses = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            courses.add(new Course("Cours_synthetique_" + i, "IFT" + (10000 + i), SESSIONS[0]));
+        }
+        return courses;
+    }
+
+    static RegistrationForm form(int i) {
+        return new RegistrationForm("Prenom" + i, "Nom" + i, "etudiant" + i + "@umontreal.ca",
+                String.valueOf(20000000 + i), course(i));
+    }
+
+    /**
+     * Écrit un fichier temporaire de n cours répartis sur les trois sessions.
+     */
+    static Path writeFile(int n) throws IOException {
+        Path file = Files.createTempFile("cours-" + n + "-", ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < n; i++) {
+                Course course = course(i);
+                writer.write(course.getCode() + "\t" + course.getName() + "\t" + course.getSession() + "\n");
+            }
+        }
+        return file;
+    }
+}
@@ -1,67 +1,189 @@
 package client;
 
 import server.models.Course;
+import server.models.CourseList;
 import server.models.RegistrationForm;
+import server.protocol.Response;
+import server.protocol.WireFormat;
 
-import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.io.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * La classe Client définit un client qui peut se connecter a un serveur pour effectuer des actions liés à la recherche
- * d'un cours et à l'inscription à un cours.
+ * d'un cours et à l'inscription à un cours. Les connexions avec le serveur sont gardées dans un ConnectionPool et
+ * réutilisées d'une commande à l'autre ; chaque commande emprunte une connexion le temps de son aller-retour, ce qui
+ * permet d'utiliser une même instance depuis plusieurs threads.
+ * Les méthodes dont le nom finit par Async ne bloquent pas l'appelant : elles retournent un CompletableFuture complété
+ * par un thread du client, ou en erreur si le serveur ne répond pas avant le délai choisi. Une interface graphique
+ * peut ainsi attendre le serveur sans geler son thread d'affichage.
+ * Les listes de cours chargées sont gardées en cache avec leur version. Pendant la durée de vie du cache, une même
+ * session est servie sans contacter le serveur ; ensuite, le client renvoie la version qu'il détient et le serveur
+ * ne renvoie la liste que si elle a changé. Le cache garde au plus MAX_CACHED_SESSIONS sessions, en oubliant la moins
+ * récemment chargée, et oublie une liste qui n'a pas été revalidée depuis CACHE_RETENTION après sa durée de vie.
  */
 public class Client {
     /**
      * Commande d'inscription utilisée pour enregistrer un étudiant à un cours.
      */
     public final static String REGISTER_COMMAND = "INSCRIRE";
+    /**
+     * Commande d'inscription d'un lot de formulaires en une seule requête.
+     */
+    public final static String BATCH_REGISTER_COMMAND = "INSCRIRE_LOT";
+    /**
+     * Nombre maximal de formulaires envoyés dans une même requête BATCH_REGISTER_COMMAND.
+     */
+    public final static int MAX_BATCH_SIZE = 10000;
+    /**
+     * Début du résultat d'un formulaire dont la tranche a échoué sans que le serveur confirme ou refuse l'inscription.
+     */
+    public final static String NOT_CONFIRMED = "Inscription non confirmée par le serveur : ";
+    /**
+     * Résultat d'un formulaire qui n'a pas été envoyé parce qu'une tranche précédente du lot a échoué.
+     */
+    public final static String NOT_SENT = "Formulaire non envoyé : une tranche précédente du lot a échoué.";
     /**
      * Commande pour charger la liste des cours d'une session spécifique.
      */
     public final static String LOAD_COMMAND = "CHARGER";
-    private final String IP;
-    private final int PORT;
-    private Socket clientSocket;
-    private ObjectOutputStream objectOutputStream;
-    private ObjectInputStream objectInputStream;
+    /**
+     * Préfixe de l'argument de LOAD_COMMAND qui indique la version de la liste déjà connue du client.
+     */
+    public final static String VERSION_OPTION = "version=";
+    /**
+     * Préfixe de l'argument de LOAD_COMMAND qui indique la position du premier cours demandé.
+     */
+    public final static String OFFSET_OPTION = "debut=";
+    /**
+     * Préfixe de l'argument de LOAD_COMMAND qui limite le nombre de cours demandés.
+     */
+    public final static String LIMIT_OPTION = "nombre=";
+    /**
+     * Préfixe de l'argument de LOAD_COMMAND qui demande l'envoi des cours en plusieurs trames.
+     */
+    public final static String STREAM_OPTION = "flux=";
+    /**
+     * Commande pour trouver un cours à partir de son code.
+     */
+    public final static String FIND_COMMAND = "TROUVER";
+    /**
+     * Commande pour obtenir les mesures d'exécution du serveur.
+     */
+    public final static String STATS_COMMAND = "STATS";
+    /**
+     * Commande d'administration pour arrêter le serveur.
+     */
+    public final static String SHUTDOWN_COMMAND = "ARRETER";
+    /**
+     * Commande pour obtenir le nombre d'inscrits et la capacité d'un cours.
+     */
+    public final static String ENROLLMENT_COMMAND = "EFFECTIF";
+    /**
+     * Nombre maximal de connexions ouvertes par défaut avec le serveur.
+     */
+    public final static int DEFAULT_MAX_CONNECTIONS = 4;
+    /**
+     * Délai, en millisecondes, après lequel une connexion inutilisée est fermée par défaut. Il est inférieur au délai
+     * d'inactivité d'un travailleur du serveur, pour que le client ne garde pas de connexions que le serveur a fermées.
+     */
+    public final static long DEFAULT_IDLE_TIMEOUT = 2500;
+    /**
+     * Délai, en millisecondes, après lequel une commande asynchrone échoue par défaut faute de réponse.
+     */
+    public final static long DEFAULT_TIMEOUT = 10000;
+    /**
+     * Durée, en millisecondes, pendant laquelle une liste de cours en cache est utilisée sans être revalidée.
+     */
+    public final static long DEFAULT_CACHE_TTL = 10000;
+    /**
+     * Nombre maximal de sessions dont la liste de cours est gardée en cache.
+     */
+    public final static int MAX_CACHED_SESSIONS = 32;
+    /**
+     * Durée, en millisecondes, pendant laquelle une liste de cours expirée est encore gardée en cache pour que sa
+     * version puisse être revalidée auprès du serveur.
+     */
+    public final static long CACHE_RETENTION = 60000;
+    /**
+     * Nombre de fois, par défaut, qu'une commande refusée par un serveur saturé est renvoyée avant d'échouer.
+     */
+    public final static int DEFAULT_BUSY_RETRIES = 4;
+    /**
+     * Attente maximale, en millisecondes, avant de renvoyer une commande refusée par un serveur saturé.
+     */
+    public final static long MAX_BUSY_DELAY = 8000;
+    private final ConnectionPool pool;
+    private final ExecutorService executor;
+    private final LinkedHashMap<String, CachedCourses> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile long timeout = DEFAULT_TIMEOUT;
+    private volatile long cacheTtl = DEFAULT_CACHE_TTL;
+    private volatile int busyRetries = DEFAULT_BUSY_RETRIES;
 
     /**
      * La méthode Client et le constructeur de sa classe. Il initialise l'adresse IP et le port qui permettent de se
      * connecter au serveur.
      * @param IP l'adresse du serveur.
      * @param PORT le port du serveur.
+     * @param format le format d'échange des messages avec le serveur.
+     * @param maxConnections le nombre maximal de connexions ouvertes en même temps avec le serveur.
+     * @param idleTimeout le délai, en millisecondes, après lequel une connexion inutilisée est fermée.
+     */
+    public Client(String IP, int PORT, WireFormat format, int maxConnections, long idleTimeout) {
+        this.pool = new ConnectionPool(IP, PORT, format, maxConnections, idleTimeout);
+        this.executor = Executors.newFixedThreadPool(maxConnections, r -> {
+            Thread thread = new Thread(r, "client-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * La méthode Client construit un client avec la taille et le délai d'inactivité par défaut de son bassin de
+     * connexions.
+     * @param IP l'adresse du serveur.
+     * @param PORT le port du serveur.
+     * @param format le format d'échange des messages avec le serveur.
+     */
+    public Client(String IP, int PORT, WireFormat format) {
+        this(IP, PORT, format, DEFAULT_MAX_CONNECTIONS, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * La méthode Client construit un client qui échange ses messages avec le serveur dans le format binaire.
+     * @param IP l'adresse du serveur.
+     * @param PORT le port du serveur.
      */
     public Client(String IP, int PORT) {
-        this.IP = IP;
-        this.PORT = PORT;
+        this(IP, PORT, WireFormat.BINARY);
     }
 
     /**
-     * La méthode connect permet de se connecter au serveur et d'initialiser des flux d'entrée et de sortie avec lui.
+     * La méthode connect vérifie que le serveur est joignable en empruntant une connexion au bassin, ouverte au
+     * besoin, puis la rend pour les commandes suivantes.
      */
     public void connect() {
         try {
-            this.clientSocket = new Socket(IP, PORT);
-            this.objectOutputStream = new ObjectOutputStream(clientSocket.getOutputStream());
-            this.objectInputStream = new ObjectInputStream(clientSocket.getInputStream());
+            pool.release(pool.borrow());
         } catch (IOException e) {
             System.out.println("Un problème est survenu lors de la connexion avec le serveur.");
         }
     }
 
     /**
-     * La méthode disconnect ferme les flux d'entrée et de sortie avec le serveur. Elle stoppe alors la connexion avec
-     * le serveur.
+     * La méthode disconnect ferme les connexions inutilisées avec le serveur. Une commande ultérieure en rouvrira une.
      */
     public void disconnect() {
-        try {
-            objectInputStream.close();
-            objectOutputStream.close();
-            clientSocket.close();
-        } catch (IOException e) {
-            System.out.println("Un problème est survenu lors de la déconnexion avec le serveur.");
-        }
+        pool.clear();
     }
 
     /**
@@ -71,58 +193,408 @@ public class Client {
      */
     public ArrayList<Course> loadCourses(String session) {
         try {
-            String request = LOAD_COMMAND + " " + session;
-            objectOutputStream.writeObject(request);
-            objectOutputStream.flush();
-            ArrayList<Course> courses = (ArrayList<Course>) objectInputStream.readObject();
-            return courses;
+            return fetchCourses(session);
         } catch (Exception e) {
             System.out.println("Les cours de la session " + session + " n'ont pas pu être affichés.");
         }
         return null;
     }
 
+    /**
+     * La méthode fetchCourses retourne les cours d'une session à partir du cache s'ils y sont encore valides, et sinon
+     * à partir du serveur, en lui envoyant la version déjà connue. Une réponse NON_MODIFIE prolonge la durée de vie de
+     * la liste en cache. L'appelant reçoit une copie qu'il peut modifier sans altérer le cache.
+     * @param session la session dont on veut charger les cours.
+     * @return la liste des cours de la session.
+     * @throws IOException si le serveur n'a pas pu être joint ou a refusé la commande.
+     */
+    private ArrayList<Course> fetchCourses(String session) throws IOException {
+        CachedCourses cached;
+        synchronized (cache) {
+            cached = cache.get(session);
+        }
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.validated < cacheTtl) return new ArrayList<>(cached.courses);
+
+        long known = cached == null ? 0 : cached.courses.getVersion();
+        Response response = call(LOAD_COMMAND + " " + session + " " + VERSION_OPTION + known, null);
+        if (Response.NOT_MODIFIED.equals(response.getStatus()) && cached != null) {
+            cache(session, new CachedCourses(cached.courses, now));
+            return new ArrayList<>(cached.courses);
+        }
+        Serializable payload = expectOk(response);
+        if (payload instanceof CourseList) {
+            cache(session, new CachedCourses((CourseList) payload, now));
+        }
+        return listOf(payload, Course.class);
+    }
+
+    /**
+     * La méthode cache garde la liste de cours d'une session, puis oublie les listes en trop, en commençant par les
+     * moins récemment chargées, et celles qui ne sont plus revalidées depuis longtemps.
+     * @param session la session de la liste.
+     * @param entry la liste et le moment où le serveur l'a fournie ou confirmée.
+     */
+    private void cache(String session, CachedCourses entry) {
+        long oldest = entry.validated - cacheTtl - CACHE_RETENTION;
+        synchronized (cache) {
+            cache.put(session, entry);
+            Iterator<CachedCourses> leastRecentFirst = cache.values().iterator();
+            while (leastRecentFirst.hasNext()) {
+                CachedCourses cached = leastRecentFirst.next();
+                if (cache.size() > MAX_CACHED_SESSIONS || cached.validated < oldest) leastRecentFirst.remove();
+            }
+        }
+    }
+
+    /**
+     * La méthode loadCoursesPage charge une partie seulement des cours d'une session. Les pages ne passent pas par le
+     * cache des listes de cours.
+     * @param session la session dont on veut charger les cours.
+     * @param offset la position du premier cours voulu, le premier cours de la session étant à la position 0.
+     * @param limit le nombre maximal de cours voulus.
+     * @return la page, qui indique aussi le nombre total de cours de la session, ou null si elle n'a pas pu être
+     * chargée.
+     */
+    public CourseList loadCoursesPage(String session, int offset, int limit) {
+        try {
+            return (CourseList) expectOk(call(LOAD_COMMAND + " " + session + " " + OFFSET_OPTION + offset + " "
+                    + LIMIT_OPTION + limit, null));
+        } catch (Exception e) {
+            System.out.println("Les cours de la session " + session + " n'ont pas pu être chargés.");
+        }
+        return null;
+    }
+
+    /**
+     * La méthode streamCourses demande au serveur les cours d'une session en plusieurs trames et permet de les
+     * parcourir à mesure qu'elles arrivent. Le flux occupe une connexion du bassin jusqu'à ce qu'il soit parcouru en
+     * entier ou fermé ; il doit donc être fermé s'il est abandonné en cours de route.
+     * @param session la session dont on veut parcourir les cours.
+     * @param chunkSize le nombre maximal de cours par trame.
+     * @return le flux des cours de la session.
+     * @throws IOException si la commande n'a pas pu être envoyée.
+     */
+    public CourseStream streamCourses(String session, int chunkSize) throws IOException {
+        return new CourseStream(pool, LOAD_COMMAND + " " + session + " " + STREAM_OPTION + chunkSize);
+    }
+
+    /**
+     * La méthode setCacheTtl change la durée pendant laquelle une liste de cours en cache est utilisée sans demander
+     * au serveur si elle a changé. Avec une durée nulle, chaque chargement est revalidé auprès du serveur.
+     * @param cacheTtl la durée, en millisecondes.
+     */
+    public void setCacheTtl(long cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+
+    /**
+     * La méthode clearCache oublie toutes les listes de cours en cache ; le prochain chargement les redemandera en
+     * entier au serveur.
+     */
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * La méthode loadAllCourses charge les cours de plusieurs sessions en un seul aller-retour : toutes les requêtes
+     * sont envoyées à la suite sur la connexion, puis les réponses sont lues et associées à leur requête.
+     * @param sessions les sessions dont on veut charger les cours.
+     * @return les listes de cours, dans l'ordre des sessions demandées.
+     */
+    public LinkedHashMap<String, ArrayList<Course>> loadAllCourses(String[] sessions) {
+        try {
+            try {
+                return pipelineLoad(sessions);
+            } catch (IOException e) {
+                return pipelineLoad(sessions);
+            }
+        } catch (Exception e) {
+            System.out.println("Les cours des sessions demandées n'ont pas pu être chargés.");
+        }
+        return null;
+    }
+
+    private LinkedHashMap<String, ArrayList<Course>> pipelineLoad(String[] sessions) throws IOException {
+        Connection connection = pool.borrow();
+        try {
+            long[] ids = new long[sessions.length];
+            for (int i = 0; i < sessions.length; i++) {
+                ids[i] = connection.send(LOAD_COMMAND + " " + sessions[i], null);
+            }
+            LinkedHashMap<String, ArrayList<Course>> courses = new LinkedHashMap<>();
+            for (int i = 0; i < sessions.length; i++) {
+                Response response = connection.receive(ids[i]);
+                courses.put(sessions[i],
+                        response.isOk() ? listOf(response.getPayload(), Course.class) : new ArrayList<>());
+            }
+            return courses;
+        } finally {
+            pool.release(connection);
+        }
+    }
+
     /**
      * La méthode registrationForm permet d'envoyer au serveur le formulaire d'inscription à un cours.
      * @param registrationForm le formulaire d'inscription à envoyer.
+     * @return true si le serveur a confirmé l'inscription, false sinon.
      */
-    public void registration(RegistrationForm registrationForm) {
+    public boolean registration(RegistrationForm registrationForm) {
         try {
-            connect();
-            String request = REGISTER_COMMAND;
-            objectOutputStream.writeObject(request);
-            objectOutputStream.flush();
-            objectOutputStream.writeObject(registrationForm);
-            objectOutputStream.flush();
+            Response response = call(REGISTER_COMMAND, registrationForm);
+            if (response.isOk()) return true;
+            System.out.println(response.getPayload());
         } catch (Exception e) {
             System.out.println("Un problème est survenu lors de l'enregistrement du formulaire.");
         }
+        return false;
     }
 
     /**
-     * La méthode findCourse permet de trouver un cours à partir de son code.
+     * La méthode registrationBatch envoie plusieurs formulaires d'inscription en une seule requête par tranche de
+     * MAX_BATCH_SIZE formulaires. Le serveur les vérifie et les écrit ensemble, puis répond pour chacun.
+     * Si une tranche échoue, les résultats des tranches précédentes, déjà enregistrées par le serveur, sont gardés :
+     * les formulaires de la tranche en échec reçoivent le message NOT_CONFIRMED suivi de la cause, car le serveur a
+     * pu les enregistrer avant l'échec, et ceux des tranches suivantes, qui ne sont pas envoyées, le message NOT_SENT.
+     * @param forms les formulaires d'inscription à envoyer.
+     * @return un résultat par formulaire, dans le même ordre : OK si l'inscription est confirmée, et sinon le message
+     * du refus ou de l'échec.
+     */
+    public List<String> registrationBatch(List<RegistrationForm> forms) {
+        List<String> results = new ArrayList<>(forms.size());
+        int from = 0;
+        try {
+            for (; from < forms.size(); from += MAX_BATCH_SIZE) {
+                ArrayList<RegistrationForm> batch = new ArrayList<>(
+                        forms.subList(from, Math.min(from + MAX_BATCH_SIZE, forms.size())));
+                results.addAll(listOf(expectOk(call(BATCH_REGISTER_COMMAND, batch)), String.class));
+            }
+        } catch (Exception e) {
+            System.out.println("Un problème est survenu lors de l'envoi du lot de formulaires.");
+            String failure = NOT_CONFIRMED + e.getMessage();
+            for (int i = from; i < Math.min(from + MAX_BATCH_SIZE, forms.size()); i++) results.add(failure);
+            while (results.size() < forms.size()) results.add(NOT_SENT);
+        }
+        return results;
+    }
+
+    /**
+     * La méthode findCourse permet de trouver un cours à partir de son code. Le serveur répond en un seul
+     * aller-retour à partir de son index des cours.
      * @param courseCode le code du cours recherche.
      * @return le cours correspondant au code donne.
      */
     public Course findCourse(String courseCode) {
-        String[] sessions = {"Automne", "Hiver", "Ete"};
         try {
-            for (int i = 0; i < sessions.length; i++) {
-                connect();
-                String request = LOAD_COMMAND + " " + sessions[i];
-                objectOutputStream.writeObject(request);
-                objectOutputStream.flush();
-                ArrayList<Course> courses = (ArrayList<Course>) objectInputStream.readObject();
-                for (int j = 0; j < courses.size(); j++) {
-                    if (courses.get(j).getCode().equals(courseCode)) return courses.get(j);
-                }
-            }
+            return (Course) call(FIND_COMMAND + " " + courseCode, null).getPayload();
         } catch (Exception e) {
             System.out.println("Un problème est survenu lors de la recherche du cours demandé.");
         }
         return null;
     }
 
+    /**
+     * La méthode stats retourne les mesures d'exécution du serveur : compteurs et durées par commande, connexions,
+     * requêtes en cours et octets échangés.
+     * @return les mesures au format JSON, ou null si elles n'ont pas pu être obtenues.
+     */
+    public String stats() {
+        try {
+            Response response = call(STATS_COMMAND, null);
+            if (response.isOk()) return (String) response.getPayload();
+        } catch (Exception e) {
+            System.out.println("Les mesures du serveur n'ont pas pu être obtenues.");
+        }
+        return null;
+    }
+
+    /**
+     * La méthode shutdownServer demande au serveur de s'arrêter : il cesse d'accepter des connexions, termine les
+     * requêtes en cours dans le délai donné, puis synchronise les inscriptions sur le disque. La méthode n'attend pas
+     * la fin de l'arrêt. Le serveur n'accepte la commande que s'il a été lancé avec l'option "--admin-token".
+     * @param token le jeton d'administration du serveur.
+     * @param timeout le délai, en millisecondes, accordé aux requêtes en cours.
+     * @return true si le serveur a commencé à s'arrêter, false sinon.
+     */
+    public boolean shutdownServer(String token, int timeout) {
+        try {
+            Response response = call(SHUTDOWN_COMMAND + " " + token + " " + timeout, null);
+            if (response.isOk()) return true;
+            System.out.println(response.getPayload());
+        } catch (Exception e) {
+            System.out.println("La demande d'arrêt n'a pas pu être envoyée au serveur.");
+        }
+        return false;
+    }
+
+    /**
+     * La méthode enrollment retourne le nombre d'inscrits d'un cours et sa capacité, qui vaut null si le cours n'est
+     * pas limité.
+     * @param courseCode le code du cours.
+     * @return l'effectif au format JSON, par exemple {"code":"IFT1015","session":"Automne","inscrits":12,
+     * "capacite":30}, ou null s'il n'a pas pu être obtenu.
+     */
+    public String enrollment(String courseCode) {
+        try {
+            Response response = call(ENROLLMENT_COMMAND + " " + courseCode, null);
+            if (response.isOk()) return (String) response.getPayload();
+        } catch (Exception e) {
+            System.out.println("L'effectif du cours n'a pas pu être obtenu.");
+        }
+        return null;
+    }
+
+    /**
+     * La méthode call emprunte une connexion, envoie une commande et attend sa réponse. Si la connexion empruntée
+     * échoue (par exemple parce que le serveur l'a fermée entre-temps), elle est écartée et une commande de lecture
+     * est renvoyée une seule fois sur une autre connexion ; une inscription ou un arrêt ne l'est jamais, puisque le
+     * serveur a pu la traiter avant que la connexion échoue. Si le serveur est saturé, la commande est renvoyée
+     * jusqu'à busyRetries fois, après une attente qui part du délai conseillé par le serveur et double à chaque refus,
+     * sans dépasser MAX_BUSY_DELAY ; une part aléatoire de l'attente évite que les clients refusés ensemble reviennent
+     * ensemble.
+     * @param line la ligne de commande.
+     * @param payload l'objet joint à la commande, ou null.
+     * @return la réponse du serveur.
+     * @throws ServerBusyException si le serveur est encore saturé après le dernier essai.
+     * @throws IOException si la commande n'a pas pu être envoyée ou sa réponse lue.
+     */
+    private Response call(String line, Serializable payload) throws IOException {
+        int failures = 0;
+        for (int refusals = 0; ; ) {
+            Connection connection = pool.borrow();
+            try {
+                return connection.call(line, payload);
+            } catch (ServerBusyException e) {
+                if (refusals == busyRetries) throw e;
+                backOff(e.getRetryAfter(), refusals++);
+            } catch (IOException e) {
+                if (!isIdempotent(line) || ++failures == 2) throw e;
+            } finally {
+                pool.release(connection);
+            }
+        }
+    }
+
+    private static boolean isIdempotent(String line) {
+        String command = line.split(" ", 2)[0];
+        return command.equals(LOAD_COMMAND) || command.equals(FIND_COMMAND) || command.equals(STATS_COMMAND)
+                || command.equals(ENROLLMENT_COMMAND) || command.equals(ConnectionPool.PING_COMMAND);
+    }
+
+    /**
+     * La méthode listOf copie une liste reçue du serveur en vérifiant le type de chacun de ses éléments, plutôt que
+     * de la convertir sans vérification.
+     * @param payload l'objet joint à la réponse.
+     * @param type le type attendu des éléments.
+     * @return une copie modifiable de la liste.
+     * @throws IOException si la réponse ne contient pas une liste.
+     * @throws ClassCastException si un élément n'est pas du type attendu.
+     */
+    private static <T> ArrayList<T> listOf(Object payload, Class<T> type) throws IOException {
+        if (!(payload instanceof List)) throw new IOException("Réponse inattendue du serveur : " + payload);
+        List<?> items = (List<?>) payload;
+        ArrayList<T> list = new ArrayList<>(items.size());
+        for (Object item : items) list.add(type.cast(item));
+        return list;
+    }
+
+    private static void backOff(long retryAfter, int refusals) throws InterruptedIOException {
+        long delay = Math.min(MAX_BUSY_DELAY, Math.max(1, retryAfter) << Math.min(refusals, 16));
+        try {
+            Thread.sleep(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Attente interrompue avant de réessayer la commande.");
+        }
+    }
+
+    /**
+     * La méthode setBusyRetries change le nombre de fois qu'une commande refusée par un serveur saturé est renvoyée
+     * avant d'échouer. Avec 0, un refus fait échouer la commande aussitôt.
+     * @param busyRetries le nombre de nouveaux essais.
+     */
+    public void setBusyRetries(int busyRetries) {
+        this.busyRetries = busyRetries;
+    }
+
+    /**
+     * La méthode setTimeout change le délai après lequel une commande asynchrone échoue faute de réponse.
+     * @param timeout le délai, en millisecondes.
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * La méthode loadCoursesAsync charge les cours d'une session sans bloquer l'appelant.
+     * @param session la session dont on veut charger les cours.
+     * @return un CompletableFuture complété par la liste des cours, ou en erreur si le serveur n'a pas répondu à
+     * temps ou a refusé la commande.
+     */
+    public CompletableFuture<ArrayList<Course>> loadCoursesAsync(String session) {
+        return async(() -> fetchCourses(session));
+    }
+
+    /**
+     * La méthode registrationAsync envoie un formulaire d'inscription sans bloquer l'appelant.
+     * @param registrationForm le formulaire d'inscription à envoyer.
+     * @return un CompletableFuture complété lorsque le serveur a confirmé l'inscription, ou en erreur avec le message
+     * du serveur si elle a été refusée.
+     */
+    public CompletableFuture<Void> registrationAsync(RegistrationForm registrationForm) {
+        return async(() -> {
+            expectOk(call(REGISTER_COMMAND, registrationForm));
+            return null;
+        });
+    }
+
+    /**
+     * La méthode findCourseAsync cherche un cours à partir de son code sans bloquer l'appelant.
+     * @param courseCode le code du cours recherché.
+     * @return un CompletableFuture complété par le cours, ou par null si le code n'existe pas.
+     */
+    public CompletableFuture<Course> findCourseAsync(String courseCode) {
+        return async(() -> (Course) expectOk(call(FIND_COMMAND + " " + courseCode, null)));
+    }
+
+    private <T> CompletableFuture<T> async(IOSupplier<T> command) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return command.get();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor).orTimeout(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    private static Serializable expectOk(Response response) throws IOException {
+        if (!response.isOk()) throw new IOException(String.valueOf(response.getPayload()));
+        return response.getPayload();
+    }
+
+    /**
+     * La classe CachedCourses associe une liste de cours en cache au moment où le serveur l'a fournie ou confirmée.
+     */
+    private static class CachedCourses {
+        private final CourseList courses;
+        private final long validated;
+
+        CachedCourses(CourseList courses, long validated) {
+            this.courses = courses;
+            this.validated = validated;
+        }
+    }
+
+    /**
+     * L'interface IOSupplier représente une commande envoyée au serveur, qui peut échouer avec une IOException.
+     */
+    @FunctionalInterface
+    private interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+
     /**
      * La méthode verifyMatricule verifie si la chaine de caractère passée en parametre correspond a un matricule
      * valide de 8 chiffres.
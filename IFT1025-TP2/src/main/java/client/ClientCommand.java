@@ -126,8 +126,9 @@ public class ClientCommand {
         }
 
         RegistrationForm registrationForm = new RegistrationForm(firstName, lastName, email, matricule, course);
-        client.registration(registrationForm);
-        System.out.println("Félicitations ! Inscription réussie de " + firstName + " " + lastName + " au cours " +
-                courseCode + ".");
+        if (client.registration(registrationForm)) {
+            System.out.println("Félicitations ! Inscription réussie de " + firstName + " " + lastName + " au cours " +
+                    courseCode + ".");
+        }
     }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.control.*;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.layout.HBox;
@@ -17,12 +18,15 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.geometry.Insets;
 import javafx.scene.control.Alert.AlertType;
 
-import java.util.ArrayList;
 import java.util.InputMismatchException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * La classe ClientCommand est une interface de graphique qui permet à un utilisateur de consulter les cours d'une
- * session et de s'inscrire à un cours.
+ * session et de s'inscrire à un cours. Les échanges avec le serveur se font en arrière-plan ; leurs résultats sont
+ * affichés par le thread JavaFX une fois reçus, ce qui garde l'interface réactive.
  */
 public class ClientGraphic extends Application {
     private static final String IP = "127.0.0.1";
@@ -81,9 +85,17 @@ public class ClientGraphic extends Application {
         load.setStyle("-fx-font-size: 15px;");
         load.setOnAction(e -> {
             selectedCourse = null;
-            client.connect();
-            ArrayList<Course> courses = (ArrayList<Course>) client.loadCourses(selectedSession);
-            table.setItems((ObservableList<Course>) FXCollections.observableArrayList(courses));
+            load.setDisable(true);
+            String session = selectedSession;
+            client.loadCoursesAsync(session).whenComplete((courses, error) -> Platform.runLater(() -> {
+                load.setDisable(false);
+                if (error != null) {
+                    showError("Les cours de la session " + session + " n'ont pas pu être chargés.\n"
+                            + describe(error));
+                    return;
+                }
+                table.setItems((ObservableList<Course>) FXCollections.observableArrayList(courses));
+            }));
         });
 
         leftInputsHbox.getChildren().addAll(comboBox, load);
@@ -138,7 +150,10 @@ public class ClientGraphic extends Application {
 
         Button send = new Button("Envoyer");
         send.setStyle("-fx-font-size: 15px;");
-        send.setOnAction(event -> sendRegistrationForm());
+        send.setOnAction(event -> {
+            send.setDisable(true);
+            sendRegistrationForm().whenComplete((ignored, error) -> Platform.runLater(() -> send.setDisable(false)));
+        });
 
         sendHBox.getChildren().add(send);
         form.getChildren().addAll(firstNameHBox, lastNameHBox, emailNameHBox, matriculeNameHBox, sendHBox);
@@ -170,35 +185,62 @@ public class ClientGraphic extends Application {
     }
 
     /**
-     * La méthode sendRegistration vérifie que tout les informations entrées par l'utilisateur sont correctes. En
-     * fonction, elle fait apparaître une alerte d'erreur ou d'information.
+     * La méthode sendRegistration vérifie que tout les informations entrées par l'utilisateur sont correctes, puis
+     * envoie le formulaire en arrière-plan. En fonction, elle fait apparaître une alerte d'erreur ou d'information,
+     * celle-ci une fois l'inscription confirmée par le serveur.
+     * @return un CompletableFuture complété lorsque l'alerte correspondant au résultat a été affichée.
      */
-    public static void sendRegistrationForm() {
+    public static CompletableFuture<Void> sendRegistrationForm() {
         String firstName = firstNameField.getText();
         String lastName = lastNameField.getText();
         String email = emailNameField.getText();
         String matricule = matriculeField.getText();
-        RegistrationForm registrationForm = new RegistrationForm(
-                firstName, lastName, email, matricule, selectedCourse);
+        Course course = selectedCourse;
+        RegistrationForm registrationForm = new RegistrationForm(firstName, lastName, email, matricule, course);
         try {
             if(!client.verifyMatricule(matricule) || firstName.isEmpty() || lastName.isEmpty() || email.isEmpty() ||
-                    selectedCourse == null) throw new InputMismatchException();
-            Alert alertInfo = new Alert(AlertType.INFORMATION);
-            alertInfo.setContentText("Félicitations ! Inscription réussie de " + firstName + " " + lastName +
-                    " au cours " + selectedCourse.getCode() + ".");
-            alertInfo.showAndWait();
-            client.registration(registrationForm);
+                    course == null) throw new InputMismatchException();
         } catch(InputMismatchException e) {
-            Alert alert = new Alert(AlertType.ERROR);
             String alertText = "Le formulaire est invalide.\n";
-            if(selectedCourse == null) alertText += "Vous devez selectionner un cours !\n";
+            if(course == null) alertText += "Vous devez selectionner un cours !\n";
             if(firstName.isEmpty()) alertText += "Le champ 'Prénom' est invalide !\n";
             if(lastName.isEmpty()) alertText += "Le champ 'Nom' est invalide !\n";
             if(email.isEmpty()) alertText += "Le champ 'Email' est invalide !\n";
             if(!client.verifyMatricule(matricule)) alertText += "Le champ 'Matricule' est invalide !\n";
-
-            alert.setContentText(alertText);
-            alert.showAndWait();
+            showError(alertText);
+            return CompletableFuture.completedFuture(null);
         }
+        CompletableFuture<Void> shown = new CompletableFuture<>();
+        client.registrationAsync(registrationForm).whenComplete((ignored, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                showError("Le serveur n'a pas pu enregistrer votre inscription. Veuillez réessayer.\n"
+                        + describe(error));
+            } else {
+                Alert alertInfo = new Alert(AlertType.INFORMATION);
+                alertInfo.setContentText("Félicitations ! Inscription réussie de " + firstName + " " + lastName +
+                        " au cours " + course.getCode() + ".");
+                alertInfo.showAndWait();
+            }
+            shown.complete(null);
+        }));
+        return shown;
+    }
+
+    private static void showError(String text) {
+        Alert alert = new Alert(AlertType.ERROR);
+        alert.setContentText(text);
+        alert.showAndWait();
+    }
+
+    /**
+     * La méthode describe retourne la raison d'un échec d'une commande asynchrone, à afficher à l'utilisateur.
+     * @param error l'erreur avec laquelle la commande s'est terminée.
+     * @return la raison de l'échec.
+     */
+    private static String describe(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) return "Le serveur n'a pas répondu à temps.";
+        if (cause.getMessage() != null) return cause.getMessage();
+        return "Le serveur est injoignable.";
     }
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package client;
+
+import server.protocol.Request;
+import server.protocol.Response;
+import server.protocol.Transport;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+
+/**
+ * La classe Connection représente une connexion persistante avec le serveur. Elle numérote les requêtes envoyées et
+ * associe chaque réponse reçue à sa requête, ce qui permet d'envoyer plusieurs requêtes avant de lire les réponses.
+ * Une connexion n'est utilisée que par un seul thread à la fois : celui qui l'a empruntée au ConnectionPool.
+ */
+public class Connection implements Closeable {
+    private final Transport transport;
+    private final HashMap<Long, Response> received = new HashMap<>();
+    private long nextId = 1;
+    private long lastUsed = System.currentTimeMillis();
+    private boolean broken;
+
+    /**
+     * La méthode Connection est le constructeur de sa classe.
+     * @param transport le transport de la connexion, dont le format est déjà négocié.
+     */
+    Connection(Transport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * La méthode send envoie une requête au serveur sans attendre sa réponse.
+     * @param line la ligne de commande.
+     * @param payload l'objet joint à la commande, ou null.
+     * @return l'identifiant de la requête, à passer à receive.
+     * @throws IOException si une erreur se produit lors de l'écriture.
+     */
+    public long send(String line, Serializable payload) throws IOException {
+        long id = nextId++;
+        try {
+            transport.writeRequest(new Request(id, line, payload));
+        } catch (IOException e) {
+            broken = true;
+            throw e;
+        }
+        lastUsed = System.currentTimeMillis();
+        return id;
+    }
+
+    /**
+     * La méthode receive retourne la réponse à une requête. Les réponses à d'autres requêtes lues entre-temps sont
+     * mises de côté jusqu'à ce qu'on les demande. Une réponse BUSY rend la connexion inutilisable, puisque le
+     * serveur la ferme aussitôt après.
+     * @param id l'identifiant de la requête.
+     * @return la réponse correspondante.
+     * @throws ServerBusyException si le serveur, saturé, a refusé la connexion.
+     * @throws IOException si une erreur se produit lors de la lecture ou si le serveur a fermé la connexion.
+     */
+    public Response receive(long id) throws IOException {
+        Response response = received.remove(id);
+        try {
+            while (response == null) {
+                Response next = transport.readResponse();
+                if (next == null) throw new EOFException("Connexion fermée par le serveur.");
+                if (Response.BUSY.equals(next.getStatus())) throw new ServerBusyException(retryAfter(next));
+                if (next.getId() == id) response = next;
+                else received.put(next.getId(), next);
+            }
+        } catch (IOException e) {
+            broken = true;
+            throw e;
+        }
+        lastUsed = System.currentTimeMillis();
+        return response;
+    }
+
+    private static long retryAfter(Response busy) {
+        try {
+            return Long.parseLong(String.valueOf(busy.getPayload()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * La méthode call envoie une requête et attend sa réponse.
+     * @param line la ligne de commande.
+     * @param payload l'objet joint à la commande, ou null.
+     * @return la réponse du serveur.
+     * @throws IOException si la requête n'a pas pu être envoyée ou sa réponse lue.
+     */
+    public Response call(String line, Serializable payload) throws IOException {
+        return receive(send(line, payload));
+    }
+
+    /**
+     * La méthode isBroken indique si une erreur de lecture ou d'écriture est survenue sur la connexion, auquel cas
+     * elle ne doit plus être réutilisée.
+     * @return true si la connexion est inutilisable, false sinon.
+     */
+    public boolean isBroken() {
+        return broken;
+    }
+
+    /**
+     * La méthode getLastUsed retourne le moment de la dernière requête ou réponse.
+     * @return le moment, en millisecondes depuis l'époque.
+     */
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        broken = true;
+        transport.close();
+    }
+}
@@ -0,0 +1,195 @@
+package client;
+
+import server.protocol.Response;
+import server.protocol.Transport;
+import server.protocol.WireFormat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * La classe ConnectionPool garde un petit nombre de connexions ouvertes avec le serveur pour qu'elles soient réutilisées
+ * d'une commande à l'autre. Un appelant emprunte une connexion avec borrow et la rend avec release (ou invalidate si
+ * elle a échoué). Une connexion restée inutilisée plus longtemps que le délai d'inactivité est fermée, et une
+ * connexion qui n'a pas servi depuis un moment est vérifiée par une commande PING avant d'être prêtée à nouveau.
+ */
+public class ConnectionPool implements Closeable {
+    /**
+     * Commande envoyée pour vérifier qu'une connexion inactive est toujours ouverte.
+     */
+    public final static String PING_COMMAND = "PING";
+    /**
+     * Délai, en millisecondes, au-delà duquel une connexion inactive est vérifiée avant d'être prêtée.
+     */
+    public final static long VALIDATE_AFTER = 2000;
+    /**
+     * Délai maximal, en millisecondes, d'attente d'une connexion lorsque toutes sont empruntées.
+     */
+    public final static long BORROW_TIMEOUT = 10000;
+    private final String host;
+    private final int port;
+    private final WireFormat format;
+    private final int maxSize;
+    private final long idleTimeout;
+    private final ArrayDeque<Connection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private int total;
+
+    /**
+     * La méthode ConnectionPool est le constructeur de sa classe. Aucune connexion n'est ouverte avant le premier
+     * emprunt.
+     * @param host l'adresse du serveur.
+     * @param port le port du serveur.
+     * @param format le format d'échange des messages.
+     * @param maxSize le nombre maximal de connexions ouvertes en même temps.
+     * @param idleTimeout le délai, en millisecondes, après lequel une connexion inutilisée est fermée. Il devrait
+     *                    être inférieur au délai d'inactivité du serveur.
+     */
+    public ConnectionPool(String host, int port, WireFormat format, int maxSize, long idleTimeout) {
+        this.host = host;
+        this.port = port;
+        this.format = format;
+        this.maxSize = maxSize;
+        this.idleTimeout = idleTimeout;
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "eviction-connexions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(idleTimeout / 2, 100);
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * La méthode borrow prête une connexion : la plus récemment rendue si elle est en bon état, sinon une nouvelle
+     * connexion si le maximum n'est pas atteint. Autrement, elle attend qu'une connexion soit rendue.
+     * @return une connexion réservée à l'appelant jusqu'à ce qu'il la rende.
+     * @throws IOException si aucune connexion n'a pu être ouverte ou si l'attente a dépassé BORROW_TIMEOUT.
+     */
+    public Connection borrow() throws IOException {
+        long deadline = System.currentTimeMillis() + BORROW_TIMEOUT;
+        while (true) {
+            Connection candidate;
+            synchronized (this) {
+                while (idle.isEmpty() && total >= maxSize) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) throw new IOException("Aucune connexion disponible avec le serveur.");
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Attente d'une connexion interrompue.", e);
+                    }
+                }
+                candidate = idle.pollFirst();
+                if (candidate == null) total++;
+            }
+            if (candidate == null) return open();
+            if (isHealthy(candidate)) return candidate;
+            invalidate(candidate);
+        }
+    }
+
+    /**
+     * La méthode release rend une connexion empruntée. Une connexion en erreur est fermée plutôt que réutilisée.
+     * @param connection la connexion à rendre.
+     */
+    public void release(Connection connection) {
+        if (connection.isBroken()) {
+            invalidate(connection);
+            return;
+        }
+        synchronized (this) {
+            idle.addFirst(connection);
+            notifyAll();
+        }
+    }
+
+    /**
+     * La méthode invalidate ferme une connexion empruntée qui ne doit pas être réutilisée.
+     * @param connection la connexion à fermer.
+     */
+    public void invalidate(Connection connection) {
+        closeQuietly(connection);
+        synchronized (this) {
+            total--;
+            notifyAll();
+        }
+    }
+
+    /**
+     * La méthode clear ferme toutes les connexions inutilisées. Les connexions empruntées seront fermées ou gardées
+     * lorsqu'elles seront rendues ; le bassin reste utilisable.
+     */
+    public void clear() {
+        closeIdle(0);
+    }
+
+    /**
+     * La méthode close ferme toutes les connexions inutilisées et arrête l'éviction périodique.
+     */
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        clear();
+    }
+
+    private void evictIdle() {
+        closeIdle(idleTimeout);
+    }
+
+    private void closeIdle(long olderThan) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Iterator<Connection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext()) {
+                Connection connection = oldestFirst.next();
+                if (now - connection.getLastUsed() < olderThan) break;
+                oldestFirst.remove();
+                closeQuietly(connection);
+                total--;
+            }
+            notifyAll();
+        }
+    }
+
+    private boolean isHealthy(Connection connection) {
+        if (connection.isBroken()) return false;
+        if (System.currentTimeMillis() - connection.getLastUsed() < VALIDATE_AFTER) return true;
+        try {
+            Response pong = connection.call(PING_COMMAND, null);
+            return pong.isOk();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Connection open() throws IOException {
+        Socket socket = null;
+        try {
+            socket = new Socket(host, port);
+            return new Connection(Transport.connect(socket, format));
+        } catch (IOException e) {
+            if (socket != null) socket.close();
+            synchronized (this) {
+                total--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // la connexion est abandonnée de toute façon
+        }
+    }
+}
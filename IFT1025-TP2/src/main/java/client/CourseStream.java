@@ -0,0 +1,108 @@
+package client;
+
+import server.models.Course;
+import server.models.CourseList;
+import server.protocol.Response;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * La classe CourseStream parcourt les cours d'une session envoyés par le serveur en plusieurs trames. Chaque trame est
+ * lue au moment où le parcours en a besoin : le premier cours est disponible avant que le serveur ait produit les
+ * suivants, et le client ne garde jamais plus d'une trame en mémoire.
+ * Le flux emprunte une connexion pour lui seul et la rend une fois la dernière trame lue. S'il est fermé avant la fin,
+ * la connexion, qui contient encore des trames non lues, est fermée plutôt que rendue au bassin.
+ */
+public class CourseStream implements Iterator<Course>, Closeable {
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final long id;
+    private Iterator<Course> chunk;
+    private int total = -1;
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * La méthode CourseStream est le constructeur de sa classe. Elle envoie la commande sur une connexion empruntée au
+     * bassin, sans attendre la réponse.
+     * @param pool le bassin dont la connexion est empruntée.
+     * @param line la commande de chargement en flux.
+     * @throws IOException si la connexion n'a pas pu être ouverte ou la commande envoyée.
+     */
+    CourseStream(ConnectionPool pool, String line) throws IOException {
+        this.pool = pool;
+        this.connection = pool.borrow();
+        try {
+            this.id = connection.send(line, null);
+        } catch (IOException e) {
+            pool.release(connection);
+            throw e;
+        }
+    }
+
+    /**
+     * La méthode hasNext indique s'il reste des cours, en lisant au besoin la trame suivante.
+     * @return true s'il reste au moins un cours, false sinon.
+     * @throws UncheckedIOException si la trame n'a pas pu être lue ou si le serveur a refusé la commande.
+     */
+    @Override
+    public boolean hasNext() {
+        while ((chunk == null || !chunk.hasNext()) && !finished) {
+            if (closed) return false;
+            try {
+                readChunk();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }
+        return chunk != null && chunk.hasNext();
+    }
+
+    @Override
+    public Course next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return chunk.next();
+    }
+
+    /**
+     * La méthode getTotal retourne le nombre total de cours de la session, connu dès la lecture de la première trame.
+     * @return le nombre total de cours, ou -1 si aucune trame n'a encore été lue.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    private void readChunk() throws IOException {
+        Response response = connection.receive(id);
+        boolean last = !Response.PARTIAL.equals(response.getStatus());
+        if (last) {
+            finished = true;
+            pool.release(connection);
+        }
+        if (!response.isOk() && last) throw new IOException(String.valueOf(response.getPayload()));
+        if (!(response.getPayload() instanceof CourseList)) throw new IOException("Trame de cours inattendue.");
+        CourseList courses = (CourseList) response.getPayload();
+        total = courses.getTotal();
+        chunk = courses.iterator();
+    }
+
+    /**
+     * La méthode close abandonne le parcours. La connexion est rendue si toutes les trames ont été lues, et fermée
+     * sinon.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        chunk = null;
+        if (!finished) {
+            finished = true;
+            pool.invalidate(connection);
+        }
+    }
+}
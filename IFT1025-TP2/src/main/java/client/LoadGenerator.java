@@ -0,0 +1,365 @@
+package client;
+
+import server.CourseCatalog;
+import server.FieldCursor;
+import server.RegistrationJournal;
+import server.Server;
+import server.ServerConfig;
+import server.ServerContext;
+import server.models.Course;
+import server.models.RegistrationForm;
+import server.metrics.LatencyHistogram;
+import server.multithreading.ServerMultithreading;
+import server.nio.NioServer;
+import server.protocol.Response;
+import server.protocol.Transport;
+import server.protocol.WireFormat;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * La classe LoadGenerator simule des étudiants qui utilisent le serveur en même temps, pour mesurer ce qu'il supporte.
+ * Chaque étudiant virtuel est un thread qui envoie une commande, attend la réponse, puis recommence (boucle fermée) :
+ * il charge d'abord les cours de la session, puis choisit entre CHARGER et INSCRIRE selon la proportion demandée.
+ * Après un certain nombre de commandes, l'étudiant ferme sa connexion et en ouvre une nouvelle, comme un étudiant qui
+ * quitte l'application et qu'un autre remplace ; le temps d'établissement de la connexion compte alors dans la durée
+ * de la commande. À la fin, le débit, les centiles 50, 95 et 99 de la durée et le nombre d'erreurs sont affichés pour
+ * chaque commande.
+ * Les inscriptions envoyées sont réellement enregistrées par le serveur dans son fichier des inscriptions.
+ */
+public class LoadGenerator {
+    private String host = "127.0.0.1";
+    private int port = ServerConfig.DEFAULT_PORT;
+    private WireFormat format = WireFormat.BINARY;
+    private int students = 100;
+    private int duration = 30;
+    private int warmup = 5;
+    private int registerPercent = 10;
+    private String session = "Automne";
+    private int sessionLength = 20;
+    private int think = 0;
+    private int timeout = 5000;
+    private String launch;
+
+    private final CommandStats load = new CommandStats(Client.LOAD_COMMAND);
+    private final CommandStats register = new CommandStats(Client.REGISTER_COMMAND);
+    private volatile boolean running = true;
+    private volatile long measureStart;
+
+    /**
+     * La méthode main lance une mesure à partir des options en ligne de commande, par exemple
+     * "--students 500 --duration 60 --register 20". Les options reconnues sont décrites dans la méthode parse.
+     * @param args les arguments en ligne de commande.
+     */
+    public static void main(String[] args) {
+        LoadGenerator generator;
+        try {
+            generator = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        try {
+            generator.launchServer();
+            generator.run();
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+        }
+        // arrête aussi le serveur lancé avec "--launch", dont les threads ne sont pas des démons
+        System.exit(0);
+    }
+
+    /**
+     * La méthode parse construit un générateur à partir des arguments en ligne de commande. Les options reconnues
+     * sont "--host" et "--port" (le serveur visé), "--format" ("binary" ou "serialization"), "--students" (nombre
+     * d'étudiants virtuels), "--duration" et "--warmup" (durées, en secondes, de la mesure et de la mise en route
+     * qui la précède), "--register" (pourcentage de commandes INSCRIRE), "--session" (session des cours chargés),
+     * "--session-length" (nombre de commandes par connexion), "--think" (pause, en millisecondes, entre deux
+     * commandes d'un étudiant), "--timeout" (délai, en millisecondes, d'attente d'une réponse) et "--launch"
+     * ("simple", "multithreading" ou "nio" : démarre le serveur correspondant dans ce processus avant la mesure).
+     * @param args les arguments en ligne de commande.
+     * @return le générateur configuré.
+     * @throws IllegalArgumentException si une option est inconnue, incomplète ou invalide.
+     */
+    public static LoadGenerator parse(String[] args) {
+        LoadGenerator generator = new LoadGenerator();
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Valeur manquante pour l'option " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--host":
+                    generator.host = value;
+                    break;
+                case "--port":
+                    generator.port = parseInt(option, value, 1);
+                    break;
+                case "--format":
+                    if (value.equals("binary")) generator.format = WireFormat.BINARY;
+                    else if (value.equals("serialization")) generator.format = WireFormat.SERIALIZATION;
+                    else throw new IllegalArgumentException("Format inconnu : " + value);
+                    break;
+                case "--students":
+                    generator.students = parseInt(option, value, 1);
+                    break;
+                case "--duration":
+                    generator.duration = parseInt(option, value, 1);
+                    break;
+                case "--warmup":
+                    generator.warmup = parseInt(option, value, 0);
+                    break;
+                case "--register":
+                    generator.registerPercent = parseInt(option, value, 0);
+                    if (generator.registerPercent > 100) {
+                        throw new IllegalArgumentException("L'option --register attend un pourcentage : " + value);
+                    }
+                    break;
+                case "--session":
+                    generator.session = value;
+                    break;
+                case "--session-length":
+                    generator.sessionLength = parseInt(option, value, 1);
+                    break;
+                case "--think":
+                    generator.think = parseInt(option, value, 0);
+                    break;
+                case "--timeout":
+                    generator.timeout = parseInt(option, value, 1);
+                    break;
+                case "--launch":
+                    if (!value.equals("simple") && !value.equals("multithreading") && !value.equals("nio")) {
+                        throw new IllegalArgumentException("Serveur inconnu : " + value);
+                    }
+                    generator.launch = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Option inconnue : " + option);
+            }
+        }
+        return generator;
+    }
+
+    private static int parseInt(String option, String value, int min) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n >= min) return n;
+        } catch (NumberFormatException e) {
+            // traité ci-dessous
+        }
+        throw new IllegalArgumentException("L'option " + option + " attend un entier d'au moins " + min + " : "
+                + value);
+    }
+
+    /**
+     * La méthode launchServer démarre, si l'option "--launch" a été donnée, le serveur demandé sur le port visé, dans
+     * un thread de ce processus. Le serveur utilise sa configuration par défaut, sauf qu'il confirme sans les réécrire
+     * les inscriptions répétées, puisque chaque étudiant virtuel s'inscrit plusieurs fois aux mêmes cours. Il n'écrit
+     * pas dans les fichiers de données du projet : voir launchContext.
+     * @throws IOException si le serveur ne peut pas être démarré.
+     */
+    private void launchServer() throws IOException {
+        if (launch == null) return;
+        ServerConfig config = ServerConfig.parse(new String[] {"--port", Integer.toString(port), "--duplicates",
+                "ignore"});
+        ServerContext context = launchContext(config);
+        Runnable server;
+        if (launch.equals("simple")) {
+            server = new Server(new ServerSocket(port, config.getBacklog()), context)::run;
+        } else if (launch.equals("nio")) {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            channel.bind(new InetSocketAddress(port), config.getBacklog());
+            server = new NioServer(channel, context);
+        } else {
+            server = new ServerMultithreading(new ServerSocket(port, config.getBacklog()), context);
+        }
+        Thread thread = new Thread(server, "serveur-" + launch);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * La méthode launchContext prépare l'état du serveur lancé dans un dossier temporaire, supprimé à la fin du
+     * processus : un journal des inscriptions vide et une copie du catalogue sans les capacités, afin que les
+     * inscriptions de la mesure ne remplissent ni le fichier inscription.txt du projet ni les cours.
+     * @param config la configuration du serveur lancé.
+     * @return l'état du serveur, qui lit le catalogue et écrit le journal du dossier temporaire.
+     * @throws IOException si le catalogue ne peut pas être copié.
+     */
+    private static ServerContext launchContext(ServerConfig config) throws IOException {
+        Path directory = Files.createTempDirectory("charge");
+        Path catalog = directory.resolve("cours.txt");
+        Path journal = directory.resolve("inscription.txt");
+        List<String> courses = new ArrayList<>();
+        FieldCursor fields = new FieldCursor('\t');
+        for (String line : Files.readAllLines(Paths.get(CourseCatalog.DEFAULT_PATH), StandardCharsets.UTF_8)) {
+            if (fields.reset(line).remaining() > 3) line = fields.next() + "\t" + fields.next() + "\t" + fields.next();
+            courses.add(line);
+        }
+        Files.write(catalog, courses, StandardCharsets.UTF_8);
+        for (Path file : new Path[] {directory, catalog, journal}) file.toFile().deleteOnExit();
+        return new ServerContext(config, new CourseCatalog(catalog.toString(), CourseCatalog.DEFAULT_CHECK_INTERVAL),
+                new RegistrationJournal(journal.toString(), config.getDurability(), config.getSyncInterval()));
+    }
+
+    /**
+     * La méthode run démarre les étudiants virtuels, laisse passer la mise en route, mesure pendant la durée demandée
+     * puis affiche les résultats.
+     * @throws InterruptedException si l'attente est interrompue.
+     */
+    public void run() throws InterruptedException {
+        System.out.printf("%d étudiants, %d %% d'inscriptions, serveur %s:%d (%s)%n", students, registerPercent, host,
+                port, launch == null ? format : launch + ", " + format);
+        measureStart = Long.MAX_VALUE;
+        List<Thread> threads = new ArrayList<>(students);
+        for (int i = 0; i < students; i++) {
+            int number = i;
+            Thread thread = new Thread(() -> student(number), "etudiant-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        Thread.sleep(warmup * 1000L);
+        measureStart = System.nanoTime();
+        Thread.sleep(duration * 1000L);
+        long elapsed = System.nanoTime() - measureStart;
+        running = false;
+        for (Thread thread : threads) {
+            thread.join(timeout + 1000L);
+        }
+        report(elapsed / 1e9);
+    }
+
+    /**
+     * La méthode student est la boucle d'un étudiant virtuel. Une erreur d'entrée-sortie (délai dépassé, connexion
+     * refusée ou fermée) est comptée comme un échec et l'étudiant reprend avec une nouvelle connexion.
+     * @param number le numéro de l'étudiant, qui sert à construire son matricule.
+     */
+    private void student(int number) {
+        Random random = new Random(number);
+        Connection connection = null;
+        int used = 0;
+        List<Course> courses = new ArrayList<>();
+        while (running) {
+            boolean registration = !courses.isEmpty() && random.nextInt(100) < registerPercent;
+            CommandStats stats = registration ? register : load;
+            long start = System.nanoTime();
+            try {
+                if (connection == null) {
+                    connection = open();
+                    used = 0;
+                }
+                Response response;
+                if (registration) {
+                    Course course = courses.get(random.nextInt(courses.size()));
+                    response = connection.call(Client.REGISTER_COMMAND, form(number, course));
+                } else {
+                    response = connection.call(Client.LOAD_COMMAND + " " + session, null);
+                    if (response.isOk() && response.getPayload() instanceof List) {
+                        // CHARGER répond par une liste de Course ; la copier élément par élément fausserait la mesure
+                        @SuppressWarnings("unchecked")
+                        List<Course> loaded = (List<Course>) response.getPayload();
+                        courses = loaded;
+                    }
+                }
+                stats.record(start, System.nanoTime(), response.isOk());
+                if (++used >= sessionLength) {
+                    closeQuietly(connection);
+                    connection = null;
+                }
+            } catch (IOException e) {
+                stats.fail(start);
+                closeQuietly(connection);
+                connection = null;
+            }
+            if (think > 0) {
+                try {
+                    Thread.sleep(think);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+        closeQuietly(connection);
+    }
+
+    private Connection open() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), timeout);
+            socket.setSoTimeout(timeout);
+            return new Connection(Transport.connect(socket, format));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private static RegistrationForm form(int number, Course course) {
+        return new RegistrationForm("Etudiant", "Virtuel" + number, "etudiant" + number + "@umontreal.ca",
+                String.valueOf(10000000 + number), course);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) return;
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // la connexion est abandonnée de toute façon
+        }
+    }
+
+    private void report(double seconds) {
+        System.out.printf("%nMesure sur %.1f s%n", seconds);
+        System.out.printf("%-10s %10s %8s %8s %11s %9s %9s %9s %9s%n", "Commande", "Réussies", "Erreurs", "Échecs",
+                "Débit (/s)", "p50 (ms)", "p95 (ms)", "p99 (ms)", "max (ms)");
+        for (CommandStats stats : new CommandStats[] {load, register}) {
+            LatencyHistogram latency = stats.latency;
+            System.out.printf("%-10s %10d %8d %8d %11.1f %9.2f %9.2f %9.2f %9.2f%n", stats.name, latency.getCount(),
+                    stats.errors.sum(), stats.failures.sum(), latency.getCount() / seconds,
+                    latency.percentile(0.50) / 1000.0, latency.percentile(0.95) / 1000.0,
+                    latency.percentile(0.99) / 1000.0, latency.getMax() / 1000.0);
+        }
+        System.out.println("Erreurs : réponses ERREUR du serveur. Échecs : délai dépassé, connexion refusée ou "
+                + "fermée.");
+    }
+
+    /**
+     * La classe CommandStats accumule les résultats d'une commande pendant la mesure : la durée des réponses
+     * réussies, le nombre de réponses en erreur et le nombre de commandes restées sans réponse.
+     */
+    private class CommandStats {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+
+        CommandStats(String name) {
+            this.name = name;
+        }
+
+        void record(long start, long end, boolean ok) {
+            if (start < measureStart) return;
+            if (ok) latency.record(end - start);
+            else errors.increment();
+        }
+
+        void fail(long start) {
+            if (start >= measureStart) failures.increment();
+        }
+    }
+}
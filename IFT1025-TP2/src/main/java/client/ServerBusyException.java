@@ -0,0 +1,25 @@
+package client;
+
+import java.io.IOException;
+
+/**
+ * La classe ServerBusyException signale que le serveur, saturé, a refusé la connexion en répondant BUSY. Elle indique
+ * le délai que le serveur conseille d'attendre avant de réessayer.
+ */
+public class ServerBusyException extends IOException {
+    private static final long serialVersionUID = 1L;
+    private final long retryAfter;
+
+    /**
+     * La méthode ServerBusyException est le constructeur de sa classe.
+     * @param retryAfter le délai conseillé par le serveur, en millisecondes.
+     */
+    public ServerBusyException(long retryAfter) {
+        super("Serveur saturé, réessayer dans " + retryAfter + " ms.");
+        this.retryAfter = retryAfter;
+    }
+
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,151 @@
+package server;
+
+import server.protocol.Response;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * La classe AdmissionControl limite le nombre de connexions servies en même temps par un serveur. Une connexion qui
+ * arrive lorsque toutes les places sont prises attend dans une file bornée, dans l'ordre d'arrivée, qu'une place se
+ * libère ; si la file est pleine ou si l'attente dépasse le délai configuré, la connexion est refusée et le client
+ * reçoit une réponse BUSY qui lui indique quand réessayer.
+ * L'admission est représentée par un CompletableFuture : le serveur simple l'attend sur son unique thread, tandis que
+ * le serveur multithread confie la connexion à un travailleur, et le serveur NIO l'enregistre auprès d'une boucle,
+ * lorsqu'il est complété, sans bloquer le thread qui accepte les connexions.
+ */
+public class AdmissionControl {
+    /**
+     * Nombre maximal de connexions qui revient à ne pas limiter les connexions servies en même temps.
+     */
+    public final static int UNLIMITED = Integer.MAX_VALUE;
+    private static final CompletableFuture<Boolean> ADMITTED = CompletableFuture.completedFuture(true);
+    private static final CompletableFuture<Boolean> REFUSED = CompletableFuture.completedFuture(false);
+    private final int queueCapacity;
+    private final long waitTimeout;
+    private final int retryAfter;
+    private final ArrayDeque<CompletableFuture<Boolean>> waiters = new ArrayDeque<>();
+    private int maxConnections;
+    private int available;
+    private int waiting;
+    private boolean closed;
+
+    /**
+     * La méthode AdmissionControl est le constructeur de sa classe.
+     * @param maxConnections le nombre maximal de connexions servies en même temps.
+     * @param queueCapacity le nombre maximal de connexions en attente d'une place.
+     * @param waitTimeout le délai maximal d'attente d'une place, en millisecondes.
+     * @param retryAfter le délai conseillé aux clients refusés avant de réessayer, en millisecondes.
+     */
+    public AdmissionControl(int maxConnections, int queueCapacity, long waitTimeout, int retryAfter) {
+        this.maxConnections = maxConnections;
+        this.available = maxConnections;
+        this.queueCapacity = queueCapacity;
+        this.waitTimeout = waitTimeout;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * La méthode AdmissionControl construit le contrôle d'admission décrit par la configuration d'un serveur.
+     * @param config la configuration du serveur.
+     */
+    public AdmissionControl(ServerConfig config) {
+        this(config.getMaxConnections(), config.getQueueCapacity(), config.getWaitTimeout(), config.getRetryAfter());
+    }
+
+    /**
+     * La méthode admit demande une place pour une nouvelle connexion. Une connexion admise doit rendre sa place avec
+     * release lorsqu'elle se ferme.
+     * @return un CompletableFuture complété par true lorsque la connexion obtient une place, ou par false si elle
+     * est refusée ; il est déjà complété si une place est libre ou si la file d'attente est pleine.
+     */
+    public synchronized CompletableFuture<Boolean> admit() {
+        if (closed) return REFUSED;
+        if (available > 0) {
+            available--;
+            return ADMITTED;
+        }
+        while (!waiters.isEmpty() && waiters.peek().isDone()) waiters.poll();
+        if (waiting >= queueCapacity) return REFUSED;
+        CompletableFuture<Boolean> admission = new CompletableFuture<>();
+        waiters.add(admission);
+        waiting++;
+        admission.whenComplete((admitted, e) -> {
+            synchronized (this) {
+                waiting--;
+            }
+        });
+        admission.completeOnTimeout(false, waitTimeout, TimeUnit.MILLISECONDS);
+        return admission;
+    }
+
+    /**
+     * La méthode release rend la place d'une connexion admise. Elle est donnée directement à la plus ancienne
+     * connexion en attente, s'il y en a une.
+     */
+    public synchronized void release() {
+        CompletableFuture<Boolean> next;
+        while ((next = waiters.poll()) != null) {
+            if (next.complete(true)) return;
+        }
+        available++;
+    }
+
+    /**
+     * La méthode setMaxConnections change le nombre maximal de connexions servies en même temps, par exemple pour
+     * lever la limite par défaut lorsque le moteur du serveur peut garder un très grand nombre de connexions. Les
+     * places ajoutées sont données aux connexions en attente.
+     * @param maxConnections le nouveau nombre maximal, ou UNLIMITED.
+     */
+    public synchronized void setMaxConnections(int maxConnections) {
+        available += maxConnections - this.maxConnections;
+        this.maxConnections = maxConnections;
+        CompletableFuture<Boolean> next;
+        while (available > 0 && (next = waiters.poll()) != null) {
+            if (next.complete(true)) available--;
+        }
+    }
+
+    /**
+     * La méthode close refuse les connexions en attente d'une place, ainsi que toutes celles qui la demanderont
+     * ensuite. Les connexions déjà admises gardent leur place jusqu'à ce qu'elles la rendent.
+     * @return le nombre de connexions en attente qui ont été refusées.
+     */
+    public int close() {
+        List<CompletableFuture<Boolean>> refused;
+        synchronized (this) {
+            closed = true;
+            refused = new ArrayList<>(waiters);
+            waiters.clear();
+        }
+        int count = 0;
+        for (CompletableFuture<Boolean> waiter : refused) {
+            if (waiter.complete(false)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * La méthode busy construit la réponse envoyée à une requête reçue sur une connexion refusée.
+     * @param id l'identifiant de la requête.
+     * @return une réponse BUSY contenant le délai conseillé, en millisecondes, avant de réessayer.
+     */
+    public Response busy(long id) {
+        return new Response(id, Response.BUSY, Integer.toString(retryAfter));
+    }
+
+    public synchronized int getAvailable() {
+        return available;
+    }
+
+    public synchronized int getWaiting() {
+        return waiting;
+    }
+
+    public long getWaitTimeout() {
+        return waitTimeout;
+    }
+}
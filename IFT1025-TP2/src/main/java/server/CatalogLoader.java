@@ -0,0 +1,225 @@
+package server;
+
+import server.models.Course;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * La classe CatalogLoader lit le fichier des cours en parallèle. Le fichier est découpé en tranches d'octets qui
+ * finissent toutes sur une fin de ligne ; chaque tranche est décodée et analysée par une tâche du ForkJoinPool commun,
+ * qui construit ses propres index. Les index des tranches sont ensuite fusionnés dans l'ordre du fichier, si bien que
+ * le résultat est le même qu'avec une lecture ligne par ligne : mêmes listes dans le même ordre, et, pour un code
+ * répété, la dernière ligne l'emporte. La capacité d'un cours est propre à sa session : chaque ligne fixe celle de
+ * son cours pour sa session, sans limite si elle n'en indique aucune.
+ * Les grandes tranches sont projetées en mémoire plutôt que copiées. Une ligne invalide n'interrompt pas le
+ * chargement : elle est ignorée et signalée avec son numéro de ligne.
+ */
+final class CatalogLoader {
+    /**
+     * Taille visée, en octets, d'une tranche du fichier.
+     */
+    static final int RANGE_SIZE = 4 * 1024 * 1024;
+    /**
+     * Taille, en octets, à partir de laquelle une tranche est projetée en mémoire plutôt que lue dans un tampon.
+     */
+    static final int MAP_THRESHOLD = 1024 * 1024;
+    /**
+     * Nombre maximal d'erreurs gardées avec leur message ; les suivantes sont seulement comptées.
+     */
+    static final int MAX_ERRORS = 1000;
+
+    private CatalogLoader() {
+    }
+
+    /**
+     * La méthode load lit le fichier des cours et construit ses index. Chaque ligne contient le code, le nom et la
+     * session d'un cours séparés par des tabulations, suivis facultativement de sa capacité. Les lignes vides sont
+     * ignorées ; une ligne incomplète est ignorée et signalée, et un cours dont la capacité est invalide est chargé
+     * sans limite et signalé.
+     * @param path le chemin du fichier des cours.
+     * @param rangeSize la taille visée, en octets, d'une tranche.
+     * @return une version immuable du catalogue.
+     * @throws IOException si le fichier ne peut pas être lu.
+     */
+    static CourseCatalog.Snapshot load(Path path, int rangeSize) throws IOException {
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        List<Range> ranges;
+        long size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            long[] bounds = split(channel, size, rangeSize);
+            try {
+                ranges = IntStream.range(0, bounds.length - 1).parallel()
+                        .mapToObj(i -> parse(channel, bounds[i], bounds[i + 1]))
+                        .collect(Collectors.toList());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return merge(ranges, lastModified, size);
+    }
+
+    /**
+     * La méthode split retourne les limites des tranches : la première commence à 0, la dernière finit à la fin du
+     * fichier, et chacune des autres commence juste après une fin de ligne.
+     */
+    private static long[] split(FileChannel channel, long size, int rangeSize) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+        long position = rangeSize;
+        while (position < size) {
+            long lineEnd = -1;
+            while (lineEnd < 0 && position < size) {
+                buffer.clear();
+                int n = channel.read(buffer, position);
+                if (n <= 0) break;
+                for (int i = 0; i < n; i++) {
+                    if (buffer.get(i) == '\n') {
+                        lineEnd = position + i + 1;
+                        break;
+                    }
+                }
+                if (lineEnd < 0) position += n;
+            }
+            if (lineEnd < 0 || lineEnd >= size) break;
+            bounds.add(lineEnd);
+            position = lineEnd + rangeSize;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) result[i] = bounds.get(i);
+        return result;
+    }
+
+    private static Range parse(FileChannel channel, long start, long end) {
+        String text;
+        try {
+            text = StandardCharsets.UTF_8.decode(read(channel, start, (int) (end - start))).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Range range = new Range();
+        FieldCursor fields = new FieldCursor('\t');
+        int from = 0;
+        while (from < text.length()) {
+            int newline = text.indexOf('\n', from);
+            int to = newline < 0 ? text.length() : newline;
+            int next = newline < 0 ? text.length() : newline + 1;
+            if (to > from && text.charAt(to - 1) == '\r') to--;
+            range.lines++;
+            if (to > from) range.add(text.substring(from, to), fields);
+            from = next;
+        }
+        return range;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long start, int length) throws IOException {
+        if (length >= MAP_THRESHOLD) return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) break;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static CourseCatalog.Snapshot merge(List<Range> ranges, long lastModified, long size) {
+        int courses = 0;
+        for (Range range : ranges) courses += range.byCode.size();
+        Map<String, List<Course>> bySession = new HashMap<>();
+        Map<String, Course> byCode = new HashMap<>(Math.max(16, courses * 4 / 3 + 1));
+        Map<String, Integer> capacities = new HashMap<>();
+        List<String> errors = new ArrayList<>();
+        int errorCount = 0;
+        int firstLine = 0;
+
+        for (Range range : ranges) {
+            for (Map.Entry<String, ArrayList<Course>> entry : range.bySession.entrySet()) {
+                bySession.computeIfAbsent(entry.getKey(), s -> new ArrayList<>()).addAll(entry.getValue());
+            }
+            byCode.putAll(range.byCode);
+            capacities.putAll(range.capacities);
+            for (int i = 0; i < range.errorLines.size() && errors.size() < MAX_ERRORS; i++) {
+                errors.add("ligne " + (firstLine + range.errorLines.get(i)) + " : " + range.errorMessages.get(i));
+            }
+            errorCount += range.errorLines.size();
+            firstLine += range.lines;
+        }
+
+        Map<String, Course> bySessionCode = new HashMap<>(Math.max(16, courses * 4 / 3 + 1));
+        Map<String, Course> bySessionName = new HashMap<>(Math.max(16, courses * 4 / 3 + 1));
+        Map<String, Long> versions = new HashMap<>();
+        for (Map.Entry<String, List<Course>> entry : bySession.entrySet()) {
+            for (Course course : entry.getValue()) {
+                bySessionCode.put(CourseCatalog.key(entry.getKey(), course.getCode()), course);
+                bySessionName.putIfAbsent(CourseCatalog.key(entry.getKey(), course.getName()), course);
+            }
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            versions.put(entry.getKey(), CourseCatalog.version(entry.getValue()));
+        }
+        return new CourseCatalog.Snapshot(Collections.unmodifiableMap(bySession), Collections.unmodifiableMap(byCode),
+                Collections.unmodifiableMap(bySessionCode), Collections.unmodifiableMap(bySessionName),
+                Collections.unmodifiableMap(capacities), Collections.unmodifiableMap(versions),
+                Collections.unmodifiableList(errors), errorCount, lastModified, size);
+    }
+
+    /**
+     * La classe Range contient ce qu'une tâche a tiré de sa tranche du fichier. Les numéros de ligne des erreurs sont
+     * comptés depuis le début de la tranche.
+     */
+    private static class Range {
+        private final LinkedHashMap<String, ArrayList<Course>> bySession = new LinkedHashMap<>();
+        private final HashMap<String, Course> byCode = new HashMap<>();
+        private final HashMap<String, Integer> capacities = new HashMap<>();
+        private final List<Integer> errorLines = new ArrayList<>();
+        private final List<String> errorMessages = new ArrayList<>();
+        private int lines;
+
+        void add(String line, FieldCursor fields) {
+            if (line.indexOf('\uFFFD') >= 0) {
+                error("caractères UTF-8 invalides");
+                return;
+            }
+            int count = fields.reset(line).remaining();
+            if (count < 3) {
+                error(count + " champ(s) au lieu d'au moins 3");
+                return;
+            }
+            String code = fields.next();
+            String name = fields.next();
+            Course course = new Course(name, code, fields.next());
+            bySession.computeIfAbsent(course.getSession(), s -> new ArrayList<>()).add(course);
+            byCode.put(code, course);
+            int capacity = CourseCatalog.UNLIMITED;
+            if (fields.hasNext()) {
+                capacity = fields.nextInt(-1);
+                if (capacity < 0) {
+                    error("capacité invalide pour le cours " + code);
+                    capacity = CourseCatalog.UNLIMITED;
+                }
+            }
+            capacities.put(CourseCatalog.key(course.getSession(), code), capacity);
+        }
+
+        private void error(String message) {
+            errorLines.add(lines);
+            errorMessages.add(message);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package server;
+
+import server.models.Course;
+import server.models.CourseList;
+import server.protocol.EncodedPayload;
+import server.protocol.Response;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * La classe CatalogResponseCache garde, pour chaque session, la réponse à la commande de chargement des cours déjà
+ * encodée. Le catalogue change rarement alors que cette commande est la plus fréquente : la liste d'une session n'est
+ * copiée et encodée qu'à la première demande, puis chaque réponse réutilise les mêmes octets.
+ * Les réponses en cache appartiennent à une version du catalogue ; dès que le catalogue retourne une autre version,
+ * le cache est vidé et reconstruit au fil des demandes. Seules les sessions du catalogue sont gardées, si bien que des
+ * sessions inconnues ne peuvent pas faire grandir le cache ; elles partagent une même réponse vide.
+ */
+public class CatalogResponseCache {
+    private volatile Entries entries;
+
+    /**
+     * La méthode get retourne la réponse encodée de la liste des cours d'une session.
+     * @param snapshot la version du catalogue à utiliser.
+     * @param session la session demandée.
+     * @param versioned true pour une CourseList accompagnée de sa version, false pour une simple liste.
+     * @return la réponse encodée.
+     */
+    public EncodedPayload get(CourseCatalog.Snapshot snapshot, String session, boolean versioned) {
+        Entries current = entries;
+        if (current == null || current.snapshot != snapshot) {
+            current = new Entries(snapshot);
+            entries = current;
+        }
+        List<Course> courses = snapshot.getCourses(session);
+        if (courses.isEmpty()) return versioned ? current.emptyVersioned : current.empty;
+        ConcurrentHashMap<String, EncodedPayload> map = versioned ? current.versioned : current.plain;
+        EncodedPayload encoded = map.get(session);
+        if (encoded == null) {
+            encoded = map.computeIfAbsent(session, s -> new EncodedPayload(Response.OK, versioned
+                    ? new CourseList(courses, snapshot.getVersion(session)) : new ArrayList<>(courses)));
+        }
+        return encoded;
+    }
+
+    /**
+     * La classe Entries regroupe les réponses encodées d'une même version du catalogue.
+     */
+    private static class Entries {
+        private final CourseCatalog.Snapshot snapshot;
+        private final ConcurrentHashMap<String, EncodedPayload> plain = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, EncodedPayload> versioned = new ConcurrentHashMap<>();
+        private final EncodedPayload empty;
+        private final EncodedPayload emptyVersioned;
+
+        Entries(CourseCatalog.Snapshot snapshot) {
+            this.snapshot = snapshot;
+            this.empty = new EncodedPayload(Response.OK, new ArrayList<Course>());
+            this.emptyVersioned = new EncodedPayload(Response.OK, new CourseList(new ArrayList<Course>(),
+                    CourseCatalog.version(Collections.<Course>emptyList())));
+        }
+    }
+}
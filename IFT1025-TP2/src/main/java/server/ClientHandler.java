@@ -0,0 +1,353 @@
+package server;
+
+import server.metrics.ServerMetrics;
+import server.protocol.Request;
+import server.protocol.Response;
+import server.protocol.ResponseStream;
+import server.protocol.Transport;
+
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * La classe ClientHandler gère une connexion avec un client. Chaque connexion acceptée par un serveur reçoit sa propre
+ * instance : le socket et les flux d'entrée et de sortie ne sont donc jamais partagés entre deux clients.
+ * La connexion reste ouverte pour plusieurs commandes, jusqu'à ce que le client la ferme ou qu'elle reste inactive
+ * trop longtemps. Les commandes envoyées sous forme de Request reçoivent une Response portant le même identifiant ;
+ * les anciens clients, qui envoient une simple chaîne de caractères, reçoivent le résultat brut comme auparavant.
+ * Le format des messages (sérialisation Java ou binaire) est négocié par le Transport à l'ouverture.
+ * Chaque commande est confiée au gestionnaire enregistré sous son nom dans le CommandRegistry du serveur. Une commande
+ * traitée sur un exécuteur n'empêche pas la lecture des requêtes suivantes : sa réponse est envoyée dès qu'elle est
+ * prête, et peut donc précéder celle d'une requête reçue plus tôt. Une réponse en flux est envoyée partie par partie,
+ * chacune étant produite juste avant son écriture.
+ * Avant de servir le client, le gestionnaire demande une place au contrôle d'admission du serveur. Une connexion
+ * refusée, ou qui a attendu un travailleur plus longtemps que le délai d'attente, reçoit une réponse BUSY à sa
+ * première requête puis est fermée. Il en va de même de toute requête reçue pendant l'arrêt du serveur.
+ */
+public class ClientHandler implements Runnable {
+    /**
+     * Commande d'inscription utilisée pour enregistrer un étudiant à un cours.
+     */
+    public final static String REGISTER_COMMAND = "INSCRIRE";
+    /**
+     * Commande d'inscription d'un lot de formulaires en une seule requête.
+     */
+    public final static String BATCH_REGISTER_COMMAND = "INSCRIRE_LOT";
+    /**
+     * Commande pour charger la liste des cours d'une session spécifique.
+     */
+    public final static String LOAD_COMMAND = "CHARGER";
+    /**
+     * Préfixe de l'argument facultatif de LOAD_COMMAND qui indique la version de la liste déjà connue du client, par
+     * exemple "CHARGER Automne version=42".
+     */
+    public final static String VERSION_OPTION = "version=";
+    /**
+     * Préfixe de l'argument facultatif de LOAD_COMMAND qui indique la position du premier cours à envoyer.
+     */
+    public final static String OFFSET_OPTION = "debut=";
+    /**
+     * Préfixe de l'argument facultatif de LOAD_COMMAND qui limite le nombre de cours envoyés, ou fixe la taille d'une
+     * page.
+     */
+    public final static String LIMIT_OPTION = "nombre=";
+    /**
+     * Préfixe de l'argument facultatif de LOAD_COMMAND qui indique la page à envoyer, la première étant la page 0 ;
+     * il s'utilise avec LIMIT_OPTION, par exemple "CHARGER Automne page=2 nombre=50".
+     */
+    public final static String PAGE_OPTION = "page=";
+    /**
+     * Préfixe de l'argument facultatif de LOAD_COMMAND qui demande l'envoi des cours en plusieurs trames du nombre de
+     * cours indiqué, par exemple "CHARGER Automne flux=100".
+     */
+    public final static String STREAM_OPTION = "flux=";
+    /**
+     * Commande pour trouver un cours à partir de son code, quelle que soit sa session.
+     */
+    public final static String FIND_COMMAND = "TROUVER";
+    /**
+     * Commande utilisée par les clients pour vérifier qu'une connexion inactive est toujours ouverte.
+     */
+    public final static String PING_COMMAND = "PING";
+    /**
+     * Commande qui retourne les mesures d'exécution du serveur, au format JSON.
+     */
+    public final static String STATS_COMMAND = "STATS";
+    /**
+     * Commande qui retourne le nombre d'inscrits et la capacité d'un cours, au format JSON.
+     */
+    public final static String ENROLLMENT_COMMAND = "EFFECTIF";
+    /**
+     * Délai maximal, en secondes, d'attente de la confirmation d'une inscription par le journal.
+     */
+    public final static int REGISTRATION_TIMEOUT = 10;
+    /**
+     * Nombre maximal de formulaires dans un lot de BATCH_REGISTER_COMMAND.
+     */
+    public final static int MAX_BATCH_SIZE = 10000;
+    /**
+     * Délai maximal, en millisecondes, accordé à un client refusé pour envoyer la requête à laquelle répondre BUSY.
+     */
+    public final static int REFUSAL_TIMEOUT = 1000;
+    /**
+     * Commande d'administration qui arrête le serveur, suivie du jeton configuré et, facultativement, du délai en
+     * millisecondes accordé aux requêtes en cours.
+     */
+    public final static String SHUTDOWN_COMMAND = "ARRETER";
+    private final Socket client;
+    private final ServerContext context;
+    private final ServerMetrics metrics;
+    private final FieldCursor commandLine = new FieldCursor(' ');
+    private final long accepted = System.currentTimeMillis();
+    private Transport transport;
+    private int pending;
+    private int idleTimeout;
+
+    /**
+     * La méthode ClientHandler est le constructeur de sa classe. Le délai d'inactivité de la connexion est celui d'une
+     * connexion qui occupe un travailleur.
+     * @param client le socket du client accepté par le serveur.
+     * @param context l'état partagé par toutes les connexions du serveur.
+     */
+    public ClientHandler(Socket client, ServerContext context) {
+        this.client = client;
+        this.context = context;
+        this.metrics = context.getMetrics();
+        this.idleTimeout = context.getConfig().getWorkerIdleTimeout();
+    }
+
+    /**
+     * La méthode ClientHandler construit un gestionnaire sans socket, dont les requêtes sont lues et les réponses
+     * envoyées par un autre moteur au moyen de la méthode dispatch.
+     * @param context l'état partagé par toutes les connexions du serveur.
+     */
+    public ClientHandler(ServerContext context) {
+        this(null, context);
+    }
+
+    /**
+     * La méthode run sert une connexion qui a déjà obtenu sa place auprès du contrôle d'admission : elle négocie le
+     * format des messages avec le client, traite ses commandes jusqu'à la fin de la connexion puis ferme celle-ci et
+     * rend sa place. L'admission est demandée par le thread qui accepte les connexions, de sorte qu'aucun travailleur
+     * n'attend de place ; le temps passé ensuite dans la file du bassin compte toutefois dans le délai d'attente.
+     */
+    public void run() {
+        AdmissionControl admission = context.getAdmission();
+        if (System.currentTimeMillis() - accepted > admission.getWaitTimeout()) {
+            admission.release();
+            refuse();
+            return;
+        }
+        try {
+            serve();
+        } finally {
+            admission.release();
+        }
+    }
+
+    private void serve() {
+        metrics.connectionOpened();
+        Closeable drain = client::shutdownInput;
+        context.getShutdown().addConnection(drain);
+        try {
+            System.out.println("Connecté au client: " + client);
+            client.setSoTimeout(idleTimeout);
+            transport = Transport.accept(client, metrics.countInput(client.getInputStream()),
+                    metrics.countOutput(client.getOutputStream()));
+            listen();
+            System.out.println("Client déconnecté!");
+        } catch (SocketTimeoutException e) {
+            System.out.println("Client inactif déconnecté: " + client);
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            context.getShutdown().removeConnection(drain);
+            metrics.connectionClosed();
+            try {
+                disconnect();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * La méthode setIdleTimeout remplace le délai d'inactivité de la connexion, par exemple par le délai plus long
+     * de la configuration lorsque la connexion a son propre thread virtuel.
+     * @param idleTimeout le délai, en millisecondes, après lequel une connexion inactive est fermée.
+     */
+    public void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * La méthode refuse répond BUSY à la première requête d'un client que le serveur ne peut pas servir, puis ferme
+     * la connexion. Le client dispose de REFUSAL_TIMEOUT millisecondes pour l'envoyer.
+     */
+    public void refuse() {
+        metrics.connectionRejected();
+        try {
+            client.setSoTimeout(REFUSAL_TIMEOUT);
+            transport = Transport.accept(client);
+            Request request = transport.readRequest();
+            if (request != null) transport.writeResponse(context.getAdmission().busy(request.getId()));
+        } catch (IOException e) {
+            // le client est refusé de toute façon
+        } finally {
+            try {
+                disconnect();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * La méthode alertHandlers alerte les gestionnaires d'événements ajoutés au serveur avec la commande et
+     * l'argument spécifiés. Ils sont appelés sur le thread qui a lu la requête, pour chaque commande reçue.
+     * @param cmd la commande à transmettre.
+     * @param arg l'argument de la commande.
+     */
+    private void alertHandlers(String cmd, String arg) {
+        if (context.getHandlers().isEmpty()) return;
+        long start = System.nanoTime();
+        for (EventHandler h : context.getHandlers()) {
+            h.handle(cmd, arg);
+        }
+        metrics.getHandlers().record(System.nanoTime() - start);
+    }
+
+    /**
+     * La méthode listen écoute en boucle les commandes envoyées par le client et confie chacune à son gestionnaire,
+     * sans attendre la réponse pour lire la suivante. Chaque réponse est envoyée dès qu'elle est prête. Lorsque le
+     * client ferme la connexion, ou après avoir répondu BUSY à une requête reçue pendant l'arrêt du serveur, la
+     * méthode attend que les réponses en cours soient envoyées. Un ancien client n'envoie qu'une commande par
+     * connexion et ne ferme jamais son socket : la lecture cesse donc dès sa commande reçue, et la connexion est fermée
+     * une fois la réponse envoyée, comme avant les connexions persistantes.
+     * @throws IOException si une erreur survient lors de la lecture des données envoyées par le client.
+     */
+    public void listen() throws IOException {
+        Request next;
+        while ((next = transport.readRequest()) != null) {
+            synchronized (this) {
+                pending++;
+            }
+            if (context.getShutdown().isStopping()) {
+                send(context.getAdmission().busy(next.getId()));
+                break;
+            }
+            dispatch(next).thenAccept(this::send);
+            if (next.isLegacy()) break;
+        }
+        synchronized (this) {
+            while (pending > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void send(Response response) {
+        try {
+            synchronized (transport) {
+                if (response instanceof ResponseStream) {
+                    Iterator<Response> parts = ((ResponseStream) response).getParts();
+                    while (parts.hasNext()) transport.writeResponse(parts.next());
+                } else {
+                    transport.writeResponse(response);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("La réponse n'a pas pu être envoyée à " + client + " : " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                pending--;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * La méthode dispatch analyse la commande d'une requête, la confie au gestionnaire enregistré sous son nom puis
+     * alerte les gestionnaires d'événements ajoutés. Une commande sans gestionnaire reçoit une réponse d'erreur. La
+     * durée du traitement est ajoutée aux mesures de la commande lorsque la réponse est prête. La ligne est découpée
+     * par un curseur propre au gestionnaire, replacé sur chaque requête : seules la commande et son argument sont
+     * alloués. La méthode n'est donc appelée que par le thread qui lit la connexion.
+     * @param request la requête reçue du client.
+     * @return la réponse à venir, qui n'est jamais complétée en erreur.
+     */
+    public CompletableFuture<Response> dispatch(Request request) {
+        long start = System.nanoTime();
+        metrics.requestStarted();
+        commandLine.reset(request.getLine());
+        String cmd = commandLine.next();
+        String arg = commandLine.rest();
+
+        CompletableFuture<Response> response = context.getCommands().dispatch(cmd, arg, request);
+        String name = cmd;
+        try {
+            alertHandlers(cmd, arg);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        if (response == null) {
+            response = CompletableFuture.completedFuture(
+                    new Response(request.getId(), Response.ERROR, "Commande inconnue : " + cmd));
+            name = ServerMetrics.UNKNOWN_COMMAND;
+        }
+        String measured = name;
+        return response.whenComplete((r, e) -> {
+            metrics.command(measured).record(System.nanoTime() - start, !r.isError());
+            metrics.requestFinished();
+        });
+    }
+
+    /**
+     * La méthode processCommandeLine traite une ligne de commande et retourne ses différentes parties : la commande
+     * est ce qui précède la première espace, et l'argument tout ce qui la suit, sans les espaces finales. Chaque
+     * appel crée un curseur et un CommandLine ; dispatch découpe plutôt la ligne avec le curseur du gestionnaire.
+     * @param line la ligne de commande à traiter.
+     * @return la commande et l'argument associé.
+     */
+    public static CommandLine processCommandLine(String line) {
+        FieldCursor cursor = new FieldCursor(line, ' ');
+        return new CommandLine(cursor.next(), cursor.rest());
+    }
+
+    /**
+     * La méthode disconnect ferme les flux d'entrée et de sortie ouverts avec le client, puis le socket.
+     * @throws IOException si une erreur se produit lors de la fermeture des flux d'entrée et de sortie.
+     */
+    public void disconnect() throws IOException {
+        if (transport != null) transport.close();
+        else if (client != null) client.close();
+    }
+
+    /**
+     * La classe CommandLine regroupe la commande et l'argument d'une ligne de commande.
+     */
+    public static final class CommandLine {
+        private final String command;
+        private final String argument;
+
+        CommandLine(String command, String argument) {
+            this.command = command;
+            this.argument = argument;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        public String getArgument() {
+            return argument;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package server;
+
+import server.protocol.Request;
+import server.protocol.Response;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * La classe CommandRegistry associe chaque nom de commande à son gestionnaire, retrouvé en temps constant. Un
+ * gestionnaire s'exécute soit directement sur le thread qui a lu la requête, soit sur l'exécuteur donné à son
+ * enregistrement, ce qui convient aux commandes qui attendent (par exemple l'écriture d'une inscription) : le thread
+ * de lecture peut alors passer à la requête suivante. Des commandes peuvent être ajoutées ou remplacées pendant que le
+ * serveur traite des connexions.
+ */
+public class CommandRegistry {
+    private final ConcurrentHashMap<String, Registration> commands = new ConcurrentHashMap<>();
+
+    /**
+     * L'interface CommandHandler traite une commande et produit sa réponse.
+     */
+    @FunctionalInterface
+    public interface CommandHandler {
+        /**
+         * La méthode handle traite une requête.
+         * @param request la requête reçue, avec son objet joint.
+         * @param arg l'argument de la commande, c'est-à-dire le reste de la ligne après son nom.
+         * @return la réponse à envoyer, qui doit porter l'identifiant de la requête.
+         * @throws Exception si la commande n'a pas pu être traitée ; le client reçoit alors une réponse d'erreur.
+         */
+        Response handle(Request request, String arg) throws Exception;
+    }
+
+    /**
+     * La méthode register associe une commande à un gestionnaire exécuté sur le thread qui lit la requête.
+     * @param name le nom de la commande.
+     * @param handler le gestionnaire de la commande.
+     */
+    public void register(String name, CommandHandler handler) {
+        register(name, handler, null);
+    }
+
+    /**
+     * La méthode register associe une commande à un gestionnaire exécuté sur un exécuteur.
+     * @param name le nom de la commande.
+     * @param handler le gestionnaire de la commande.
+     * @param executor l'exécuteur du gestionnaire, ou null pour l'exécuter sur le thread qui lit la requête.
+     */
+    public void register(String name, CommandHandler handler, Executor executor) {
+        commands.put(name, new Registration(handler, executor));
+    }
+
+    /**
+     * La méthode contains indique si une commande a un gestionnaire.
+     * @param name le nom de la commande.
+     * @return true si la commande est enregistrée, false sinon.
+     */
+    public boolean contains(String name) {
+        return commands.containsKey(name);
+    }
+
+    /**
+     * La méthode dispatch confie une requête au gestionnaire de sa commande.
+     * @param cmd le nom de la commande.
+     * @param arg l'argument de la commande.
+     * @param request la requête reçue.
+     * @return la réponse à venir, qui n'est jamais complétée en erreur, ou null si la commande n'est pas enregistrée.
+     */
+    public CompletableFuture<Response> dispatch(String cmd, String arg, Request request) {
+        Registration registration = commands.get(cmd);
+        if (registration == null) return null;
+        if (registration.executor == null) {
+            return CompletableFuture.completedFuture(invoke(registration.handler, cmd, arg, request));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> invoke(registration.handler, cmd, arg, request),
+                    registration.executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(new Response(request.getId(), Response.ERROR,
+                    "Le serveur ne peut pas traiter la commande " + cmd + " pour le moment."));
+        }
+    }
+
+    private static Response invoke(CommandHandler handler, String cmd, String arg, Request request) {
+        try {
+            Response response = handler.handle(request, arg);
+            if (response != null) return response;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return new Response(request.getId(), Response.ERROR, "Erreur lors du traitement de la commande " + cmd + ".");
+    }
+
+    /**
+     * La classe Registration associe un gestionnaire à l'exécuteur sur lequel il s'exécute.
+     */
+    private static final class Registration {
+        private final CommandHandler handler;
+        private final Executor executor;
+
+        Registration(CommandHandler handler, Executor executor) {
+            this.handler = handler;
+            this.executor = executor;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package server;
+
+import server.models.Course;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * La classe CourseCatalog garde en mémoire la liste des cours du fichier cours.txt, indexée par session et par code de
+ * cours. Le fichier n'est lu qu'au chargement initial puis lorsqu'il est modifié. Chaque chargement produit un
+ * Snapshot immuable qui remplace l'ancien d'un seul coup : les lecteurs ne sont jamais bloqués et ne voient jamais une
+ * liste partiellement chargée.
+ */
+public class CourseCatalog {
+    /**
+     * Chemin par défaut du fichier contenant la liste des cours.
+     */
+    public final static String DEFAULT_PATH = "./src/main/java/server/data/cours.txt";
+    /**
+     * Délai minimal, en millisecondes, entre deux vérifications de la date de modification du fichier.
+     */
+    public final static long DEFAULT_CHECK_INTERVAL = 1000;
+    /**
+     * Capacité d'un cours pour lequel le fichier n'en indique aucune.
+     */
+    public final static int UNLIMITED = Integer.MAX_VALUE;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private final Path path;
+    private final long checkInterval;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+    private volatile long nextCheck;
+
+    /**
+     * La méthode CourseCatalog est le constructeur de sa classe. Elle charge immédiatement le fichier des cours.
+     * @param path le chemin du fichier des cours.
+     * @param checkInterval le délai minimal, en millisecondes, entre deux vérifications du fichier.
+     * @throws IOException si le fichier ne peut pas être lu.
+     */
+    public CourseCatalog(String path, long checkInterval) throws IOException {
+        this.path = Paths.get(path);
+        this.checkInterval = checkInterval;
+        this.snapshot = load(this.path);
+        this.nextCheck = System.currentTimeMillis() + checkInterval;
+    }
+
+    /**
+     * La méthode CourseCatalog construit un catalogue à partir du fichier des cours par défaut.
+     * @throws IOException si le fichier ne peut pas être lu.
+     */
+    public CourseCatalog() throws IOException {
+        this(DEFAULT_PATH, DEFAULT_CHECK_INTERVAL);
+    }
+
+    /**
+     * La méthode snapshot retourne la version courante du catalogue. Si le fichier a été modifié depuis le dernier
+     * chargement, un seul appelant le recharge ; les autres continuent d'utiliser la version précédente.
+     * @return la version courante du catalogue.
+     */
+    public Snapshot snapshot() {
+        if (System.currentTimeMillis() >= nextCheck && reloadLock.tryLock()) {
+            try {
+                refresh();
+            } finally {
+                reloadLock.unlock();
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * La méthode getCourses retourne les cours offerts pendant une session.
+     * @param session la session demandée.
+     * @return la liste non modifiable des cours de la session, vide si la session est inconnue.
+     */
+    public List<Course> getCourses(String session) {
+        return snapshot().getCourses(session);
+    }
+
+    /**
+     * La méthode findCourse retourne le cours correspondant à un code.
+     * @param code le code du cours recherché.
+     * @return le cours correspondant, ou null s'il n'existe pas.
+     */
+    public Course findCourse(String code) {
+        return snapshot().findCourse(code);
+    }
+
+    private void refresh() {
+        nextCheck = System.currentTimeMillis() + checkInterval;
+        try {
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+            long size = Files.size(path);
+            Snapshot current = snapshot;
+            if (lastModified != current.lastModified || size != current.size) {
+                snapshot = load(path);
+                System.out.println("Catalogue des cours rechargé: " + path);
+            }
+        } catch (IOException e) {
+            // On garde la version précédente tant que le fichier n'est pas lisible.
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * La méthode getCapacity retourne le nombre maximal d'inscrits d'un cours pendant une session.
+     * @param session la session du cours.
+     * @param code le code du cours.
+     * @return la capacité du cours, ou UNLIMITED si le fichier n'en indique aucune.
+     */
+    public int getCapacity(String session, String code) {
+        return snapshot().getCapacity(session, code);
+    }
+
+    /**
+     * La méthode getVersion retourne la version de la liste des cours d'une session.
+     * @param session la session demandée.
+     * @return la version de la liste, qui ne change que si la liste elle-même change.
+     */
+    public long getVersion(String session) {
+        return snapshot().getVersion(session);
+    }
+
+    /**
+     * La méthode load lit le fichier des cours et construit ses index, en parallèle pour un grand fichier. Les lignes
+     * invalides sont ignorées et signalées dans la console.
+     * @param path le chemin du fichier des cours.
+     * @return une version immuable du catalogue.
+     * @throws IOException si le fichier ne peut pas être lu.
+     */
+    static Snapshot load(Path path) throws IOException {
+        Snapshot loaded = CatalogLoader.load(path, CatalogLoader.RANGE_SIZE);
+        if (loaded.getErrorCount() > 0) {
+            System.out.println(loaded.getErrorCount() + " ligne(s) invalide(s) dans " + path + " :");
+            for (String error : loaded.getErrors().subList(0, Math.min(10, loaded.getErrors().size()))) {
+                System.out.println("  " + error);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * La méthode key retourne la clé qui identifie un cours dans une session ; une tabulation ne peut apparaître ni
+     * dans la session, ni dans le code.
+     */
+    static String key(String session, String code) {
+        return session + '\t' + code;
+    }
+
+    /**
+     * La méthode version calcule l'empreinte (FNV-1a sur 64 bits) du contenu d'une liste de cours. Deux chargements
+     * d'une même liste ont la même version, même si d'autres sessions du fichier ont changé entre-temps ; la version
+     * n'est jamais 0, valeur qu'un client utilise lorsqu'il n'a encore aucune liste.
+     * @param courses la liste des cours d'une session.
+     * @return la version de la liste.
+     */
+    static long version(List<Course> courses) {
+        long hash = FNV_OFFSET;
+        for (Course course : courses) {
+            for (String field : new String[] {course.getCode(), course.getName(), course.getSession()}) {
+                for (int i = 0; i < field.length(); i++) {
+                    hash = (hash ^ field.charAt(i)) * FNV_PRIME;
+                }
+                hash = (hash ^ '\t') * FNV_PRIME;
+            }
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * La classe Snapshot représente une version immuable du catalogue. Les objets Course qu'elle contient sont
+     * partagés entre tous les lecteurs et ne doivent pas être modifiés.
+     */
+    public static class Snapshot {
+        private final Map<String, List<Course>> bySession;
+        private final Map<String, Course> byCode;
+        private final Map<String, Course> bySessionCode;
+        private final Map<String, Course> bySessionName;
+        private final Map<String, Integer> capacities;
+        private final Map<String, Long> versions;
+        private final List<String> errors;
+        private final int errorCount;
+        private final long lastModified;
+        private final long size;
+
+        Snapshot(Map<String, List<Course>> bySession, Map<String, Course> byCode, Map<String, Course> bySessionCode,
+                 Map<String, Course> bySessionName, Map<String, Integer> capacities, Map<String, Long> versions,
+                 List<String> errors, int errorCount, long lastModified, long size) {
+            this.bySession = bySession;
+            this.byCode = byCode;
+            this.bySessionCode = bySessionCode;
+            this.bySessionName = bySessionName;
+            this.capacities = capacities;
+            this.versions = versions;
+            this.errors = errors;
+            this.errorCount = errorCount;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        public List<Course> getCourses(String session) {
+            return bySession.getOrDefault(session, Collections.emptyList());
+        }
+
+        public Course findCourse(String code) {
+            return byCode.get(code);
+        }
+
+        /**
+         * La méthode getCourse retourne le cours offert pendant une session sous un code donné. Contrairement à
+         * findCourse(code), elle distingue un même code offert pendant plusieurs sessions.
+         * @param session la session du cours.
+         * @param code le code du cours.
+         * @return le cours du catalogue, ou null s'il n'est pas offert pendant cette session.
+         */
+        public Course getCourse(String session, String code) {
+            return bySessionCode.get(key(session, code));
+        }
+
+        /**
+         * La méthode findCourse retourne le cours d'une session qui porte un nom donné, tel qu'il apparaît dans le
+         * fichier des inscriptions. Si plusieurs cours de la session portent ce nom, c'est le premier du catalogue.
+         * @param session la session du cours.
+         * @param name le nom du cours.
+         * @return le cours correspondant, ou null s'il n'existe pas.
+         */
+        public Course findCourse(String session, String name) {
+            return bySessionName.get(key(session, name));
+        }
+
+        public long getVersion(String session) {
+            Long version = versions.get(session);
+            return version != null ? version : version(Collections.emptyList());
+        }
+
+        /**
+         * La méthode getCapacity retourne le nombre maximal d'inscrits d'un cours pendant une session, tel que
+         * l'indique la dernière ligne du fichier pour ce cours et cette session.
+         * @param session la session du cours.
+         * @param code le code du cours.
+         * @return la capacité du cours, ou UNLIMITED si cette ligne n'en indique aucune.
+         */
+        public int getCapacity(String session, String code) {
+            return capacities.getOrDefault(key(session, code), UNLIMITED);
+        }
+
+        public int size() {
+            return byCode.size();
+        }
+
+        /**
+         * La méthode getErrors retourne les erreurs trouvées au chargement, chacune précédée de son numéro de ligne.
+         * Seules les premières sont gardées.
+         * @return les messages d'erreur, dans l'ordre du fichier.
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        /**
+         * La méthode getErrorCount retourne le nombre total de lignes invalides trouvées au chargement.
+         * @return le nombre d'erreurs, y compris celles dont le message n'a pas été gardé.
+         */
+        public int getErrorCount() {
+            return errorCount;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package server;
+
+import server.models.Course;
+import server.models.CourseList;
+import server.models.RegistrationForm;
+import server.protocol.EncodedPayload;
+import server.protocol.Request;
+import server.protocol.Response;
+import server.protocol.ResponseStream;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+/**
+ * La classe DefaultCommands contient les gestionnaires des commandes fournies par le serveur et les enregistre dans
+ * le registre d'un contexte. Les commandes qui ne font que lire le catalogue ou les mesures s'exécutent directement
+ * sur le thread de lecture ; l'inscription et l'inscription par lot, qui attendent le journal, s'exécutent sur
+ * l'exécuteur des gestionnaires. La commande d'arrêt n'est enregistrée que si la configuration fixe un jeton
+ * d'administration.
+ */
+final class DefaultCommands {
+    private static final EncodedPayload NOT_MODIFIED = new EncodedPayload(Response.NOT_MODIFIED, null);
+    private static final String INCOMPLETE_FORM = "Formulaire d'inscription manquant ou incomplet.";
+    private static final String NOT_WRITTEN = "L'inscription n'a pas pu être enregistrée.";
+
+    private DefaultCommands() {
+    }
+
+    /**
+     * La méthode register enregistre les commandes fournies par le serveur.
+     * @param context le contexte dont le registre reçoit les commandes.
+     */
+    static void register(ServerContext context) {
+        CommandRegistry commands = context.getCommands();
+        commands.register(ClientHandler.LOAD_COMMAND, (request, arg) -> loadCourses(context, request, arg));
+        commands.register(ClientHandler.FIND_COMMAND, (request, arg) -> findCourse(context, request, arg));
+        commands.register(ClientHandler.REGISTER_COMMAND, (request, arg) -> registration(context, request),
+                context.getHandlerExecutor());
+        commands.register(ClientHandler.BATCH_REGISTER_COMMAND, (request, arg) -> registrationBatch(context, request),
+                context.getHandlerExecutor());
+        commands.register(ClientHandler.PING_COMMAND,
+                (request, arg) -> new Response(request.getId(), Response.OK, "PONG"));
+        commands.register(ClientHandler.ENROLLMENT_COMMAND, (request, arg) -> enrollment(context, request, arg));
+        commands.register(ClientHandler.STATS_COMMAND,
+                (request, arg) -> new Response(request.getId(), Response.OK, context.getMetrics().toJson()));
+        if (context.getConfig().getAdminToken() != null) {
+            commands.register(ClientHandler.SHUTDOWN_COMMAND, (request, arg) -> shutdown(context, request, arg));
+        }
+    }
+
+    /**
+     Récupérer dans le catalogue en mémoire la liste des cours offerts pendant la session spécifiée en argument.
+     Ensuite, elle renvoie la liste des cours pour une session au client.
+     La session peut être suivie d'options de la forme "nom=N" :
+     - "version=N", N étant la version de la liste que le client a déjà : la réponse ne contient aucune liste lorsque
+       cette version est toujours la bonne ; sinon, elle contient la liste avec sa version ;
+     - "debut=N" et "nombre=N" limitent la réponse aux N cours qui suivent la position donnée, et "page=N" (la
+       première page étant la page 0) équivaut à un début de N fois le nombre de cours par page ;
+     - "flux=N" envoie les cours choisis en plusieurs trames de N cours au plus, produites au fur et à mesure de leur
+       envoi. Un ancien client, qui n'attend qu'une réponse, reçoit tous ces cours en une seule.
+     Une page ou une partie du flux est une CourseList qui indique sa position et le nombre total de cours de la
+     session. Les réponses sans page ni flux sont prises dans le cache des réponses encodées, qui suit les changements
+     du catalogue.
+     @param arg la session pour laquelle on veut récupérer la liste des cours, suivie ou non d'options
+     */
+    static Response loadCourses(ServerContext context, Request request, String arg) {
+        CourseCatalog.Snapshot snapshot = context.getCatalog().snapshot();
+        long known = 0;
+        int offset = 0;
+        int limit = -1;
+        int page = -1;
+        int chunk = 0;
+        boolean versioned = false;
+        boolean paged = false;
+        String session = arg;
+        int space;
+        while ((space = session.lastIndexOf(' ')) >= 0 && session.indexOf('=', space) >= 0) {
+            String option = session.substring(space + 1);
+            String name = option.substring(0, option.indexOf('=') + 1);
+            String value = option.substring(name.length());
+            try {
+                if (name.equals(ClientHandler.VERSION_OPTION)) {
+                    known = Long.parseLong(value);
+                    versioned = true;
+                } else if (name.equals(ClientHandler.OFFSET_OPTION)) {
+                    offset = nonNegative(value);
+                    paged = true;
+                } else if (name.equals(ClientHandler.LIMIT_OPTION)) {
+                    limit = nonNegative(value);
+                    paged = true;
+                } else if (name.equals(ClientHandler.PAGE_OPTION)) {
+                    page = nonNegative(value);
+                    paged = true;
+                } else if (name.equals(ClientHandler.STREAM_OPTION)) {
+                    chunk = nonNegative(value);
+                    if (chunk == 0) throw new NumberFormatException();
+                } else {
+                    return new Response(request.getId(), Response.ERROR, "Option inconnue : " + option);
+                }
+            } catch (NumberFormatException e) {
+                return new Response(request.getId(), Response.ERROR, "Valeur invalide : " + option);
+            }
+            session = session.substring(0, space);
+        }
+        if (page >= 0) {
+            if (limit < 0) {
+                return new Response(request.getId(), Response.ERROR,
+                        "L'option " + ClientHandler.PAGE_OPTION + " demande l'option " + ClientHandler.LIMIT_OPTION);
+            }
+            offset = (int) Math.min((long) page * limit, Integer.MAX_VALUE);
+        }
+
+        if (versioned && known == snapshot.getVersion(session)) return NOT_MODIFIED.toResponse(request.getId());
+        if (!paged && (chunk == 0 || request.isLegacy())) {
+            return context.getResponseCache().get(snapshot, session, versioned).toResponse(request.getId());
+        }
+        List<Course> courses = snapshot.getCourses(session);
+        long version = snapshot.getVersion(session);
+        int from = Math.min(offset, courses.size());
+        int to = limit < 0 ? courses.size() : (int) Math.min((long) from + limit, courses.size());
+        if (chunk == 0 || request.isLegacy()) {
+            return new Response(request.getId(), Response.OK,
+                    new CourseList(courses.subList(from, to), version, from, courses.size()));
+        }
+        return new ResponseStream(request.getId(), chunks(request.getId(), courses, version, from, to, chunk));
+    }
+
+    private static int nonNegative(String value) {
+        int n = Integer.parseInt(value);
+        if (n < 0) throw new NumberFormatException();
+        return n;
+    }
+
+    /**
+     Produire une à une les parties d'un envoi en flux : chaque partie copie au plus chunk cours de la liste au moment
+     où elle est demandée. Un intervalle vide donne une seule partie, vide.
+     */
+    private static Iterator<Response> chunks(long id, List<Course> courses, long version, int from, int to,
+                                             int chunk) {
+        return new Iterator<Response>() {
+            private int next = from;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                return !done;
+            }
+
+            @Override
+            public Response next() {
+                if (done) throw new NoSuchElementException();
+                int end = (int) Math.min((long) next + chunk, to);
+                CourseList part = new CourseList(courses.subList(next, end), version, next, courses.size());
+                next = end;
+                done = next >= to;
+                return new Response(id, done ? Response.OK : Response.PARTIAL, part);
+            }
+        };
+    }
+
+    /**
+     Chercher dans l'index du catalogue le cours dont le code est spécifié en argument et le renvoyer au client.
+     La réponse ne contient aucun cours si le code n'existe pas.
+     @param arg le code du cours recherché
+     */
+    static Response findCourse(ServerContext context, Request request, String arg) {
+        return new Response(request.getId(), Response.OK, context.getCatalog().findCourse(arg));
+    }
+
+    /**
+     Renvoyer au client le nombre d'inscrits et la capacité du cours dont le code est spécifié en argument, au format
+     JSON. La capacité vaut null si le cours n'est pas limité.
+     @param arg le code du cours
+     */
+    static Response enrollment(ServerContext context, Request request, String arg) {
+        CourseCatalog.Snapshot snapshot = context.getCatalog().snapshot();
+        Course course = snapshot.findCourse(arg);
+        if (course == null) return new Response(request.getId(), Response.ERROR, "Cours inconnu : " + arg);
+        int capacity = snapshot.getCapacity(course.getSession(), arg);
+        return new Response(request.getId(), Response.OK, "{\"code\":\"" + course.getCode() + "\",\"session\":\""
+                + course.getSession() + "\",\"inscrits\":"
+                + context.getEnrollments().getEnrollment(course.getSession(), course.getCode()) + ",\"capacite\":"
+                + (capacity == CourseCatalog.UNLIMITED ? "null" : Integer.toString(capacity)) + "}");
+    }
+
+    /**
+     Vérifier le jeton d'administration spécifié en argument, puis commencer l'arrêt du serveur sans l'attendre : la
+     réponse part avant que la connexion soit drainée. Le jeton peut être suivi du délai, en millisecondes, accordé
+     aux requêtes en cours ; le délai de la configuration est utilisé sinon. Le rapport d'arrêt est affiché dans la
+     console du serveur.
+     @param arg le jeton d'administration, suivi ou non du délai
+     */
+    static Response shutdown(ServerContext context, Request request, String arg) {
+        FieldCursor fields = new FieldCursor(arg, ' ');
+        byte[] token = fields.next().getBytes(StandardCharsets.UTF_8);
+        byte[] expected = context.getConfig().getAdminToken().getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(token, expected)) {
+            return new Response(request.getId(), Response.ERROR, "Jeton d'administration invalide.");
+        }
+        int timeout = fields.hasNext() ? fields.nextInt(-1) : context.getConfig().getShutdownTimeout();
+        if (timeout < 0 || fields.hasNext()) {
+            return new Response(request.getId(), Response.ERROR, "Délai d'arrêt invalide : " + arg);
+        }
+        context.getShutdown().start(timeout);
+        return new Response(request.getId(), Response.OK, "Arrêt commencé, délai " + timeout + " ms.");
+    }
+
+    /**
+     Récupérer l'objet 'RegistrationForm' envoyé par le client avec la commande, le confier au journal des
+     inscriptions et renvoyer un message de confirmation au client une fois l'inscription durable. Une inscription
+     déjà présente dans l'index est refusée, ou confirmée sans être écrite si le serveur ignore les doublons ; une
+     inscription à un cours complet est refusée. Si le serveur tient un magasin binaire, l'inscription confirmée y est
+     aussi ajoutée ; le fichier texte restant la référence, un échec à cette étape est signalé dans la console sans
+     annuler l'inscription.
+     La méthode gère les exceptions si l'inscription n'a pas pu être écrite dans le fichier.
+     */
+    static Response registration(ServerContext context, Request request) {
+        if (!isComplete(request.getPayload())) {
+            return new Response(request.getId(), Response.ERROR, INCOMPLETE_FORM);
+        }
+        RegistrationForm registrationForm = (RegistrationForm) request.getPayload();
+        String refused = reserve(context, registrationForm);
+        if (Response.OK.equals(refused)) return new Response(request.getId(), Response.OK, null);
+        if (refused != null) return new Response(request.getId(), Response.ERROR, refused);
+        List<RegistrationForm> forms = Collections.singletonList(registrationForm);
+        if (write(context, forms)) return new Response(request.getId(), Response.OK, null);
+        return new Response(request.getId(), Response.ERROR, NOT_WRITTEN);
+    }
+
+    /**
+     Récupérer la liste de formulaires envoyée par le client avec la commande et les inscrire tous en une fois. Les
+     formulaires sont vérifiés en parallèle, avec les mêmes règles que pour une inscription seule, puis ceux qui sont
+     acceptés sont confiés ensemble au journal, qui les ajoute au fichier en une seule écriture.
+     La réponse contient un résultat par formulaire, dans l'ordre du lot : OK si l'inscription est confirmée, et sinon
+     le message du refus. Lorsqu'un cours n'a plus de places pour tout le lot, les formulaires acceptés ne sont pas
+     forcément les premiers du lot.
+     */
+    static Response registrationBatch(ServerContext context, Request request) {
+        if (!(request.getPayload() instanceof List)) {
+            return new Response(request.getId(), Response.ERROR, "Lot de formulaires d'inscription manquant.");
+        }
+        List<?> items = (List<?>) request.getPayload();
+        if (items.size() > ClientHandler.MAX_BATCH_SIZE) {
+            return new Response(request.getId(), Response.ERROR, "Le lot contient " + items.size()
+                    + " formulaires ; il ne peut pas en contenir plus de " + ClientHandler.MAX_BATCH_SIZE + ".");
+        }
+        String[] outcomes = new String[items.size()];
+        IntStream.range(0, items.size()).parallel().forEach(i -> outcomes[i] = isComplete(items.get(i))
+                ? reserve(context, (RegistrationForm) items.get(i)) : INCOMPLETE_FORM);
+
+        List<RegistrationForm> accepted = new ArrayList<>();
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == null) accepted.add((RegistrationForm) items.get(i));
+        }
+        String written = accepted.isEmpty() || write(context, accepted) ? Response.OK : NOT_WRITTEN;
+        ArrayList<String> results = new ArrayList<>(outcomes.length);
+        for (String outcome : outcomes) results.add(outcome == null ? written : outcome);
+        return new Response(request.getId(), Response.OK, results);
+    }
+
+    private static boolean isComplete(Object payload) {
+        return payload instanceof RegistrationForm && ((RegistrationForm) payload).getCourse() != null;
+    }
+
+    /**
+     Retrouver dans le catalogue le cours du formulaire par sa session et son code, puis réserver dans l'index
+     l'inscription et une place dans ce cours. Le cours envoyé par le client est remplacé dans le formulaire par celui
+     du catalogue : c'est lui qui fixe la capacité, la clé de l'index et la ligne écrite dans le journal. Un cours
+     absent du catalogue est refusé, tout comme un formulaire qui ne tiendrait pas dans le magasin binaire, s'il y en
+     a un. La méthode retourne null si l'inscription est réservée et doit être écrite, OK si c'est un doublon que le
+     serveur ignore, et sinon le message du refus.
+     */
+    private static String reserve(ServerContext context, RegistrationForm registrationForm) {
+        Course sent = registrationForm.getCourse();
+        CourseCatalog.Snapshot snapshot = context.getCatalog().snapshot();
+        Course course = snapshot.getCourse(sent.getSession(), sent.getCode());
+        if (course == null) {
+            return "Le cours " + sent.getCode() + " n'est pas offert pour la session " + sent.getSession() + ".";
+        }
+        registrationForm.setCourse(course);
+        if (context.getStore() != null) {
+            try {
+                RegistrationStore.validate(registrationForm);
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+        }
+        EnrollmentIndex enrollments = context.getEnrollments();
+        if (!enrollments.add(registrationForm)) {
+            if (context.getConfig().getDuplicates() == ServerConfig.Duplicates.IGNORE) return Response.OK;
+            return "Le matricule " + registrationForm.getMatricule() + " est déjà inscrit au cours "
+                    + course.getCode() + " pour la session " + course.getSession() + ".";
+        }
+        if (!enrollments.reserveSeat(course, snapshot.getCapacity(course.getSession(), course.getCode()))) {
+            enrollments.remove(registrationForm);
+            return "Le cours " + course.getCode() + " est complet pour la session " + course.getSession() + ".";
+        }
+        return null;
+    }
+
+    /**
+     Écrire des inscriptions réservées dans le journal, en une seule soumission, et attendre qu'elles soient durables,
+     puis les ajouter au magasin binaire s'il y en a un. Si le journal échoue, les réservations sont annulées. Après
+     le délai d'attente ou une interruption, la soumission est annulée si elle n'a pas encore été prise par le thread
+     d'écriture ; sinon ses lignes sont en cours d'écriture et les réservations sont gardées jusqu'à son résultat.
+     */
+    private static boolean write(ServerContext context, List<RegistrationForm> forms) {
+        CompletableFuture<Void> written = context.getJournal().submitAll(forms);
+        try {
+            try {
+                written.get(ClientHandler.REGISTRATION_TIMEOUT, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                if (written.cancel(false)) throw e;
+                awaitTaken(written);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (written.cancel(false)) throw e;
+                awaitTaken(written);
+            }
+            RegistrationStore store = context.getStore();
+            if (store != null) {
+                try {
+                    for (RegistrationForm form : forms) store.append(form);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            // l'interruption est déjà signalée et la soumission annulée : ses lignes ne seront jamais écrites
+        } catch (ExecutionException | TimeoutException e) {
+            e.printStackTrace();
+        }
+        EnrollmentIndex enrollments = context.getEnrollments();
+        for (RegistrationForm form : forms) {
+            enrollments.releaseSeat(form.getCourse());
+            enrollments.remove(form);
+        }
+        return false;
+    }
+
+    /**
+     Attendre le résultat d'une soumission que le thread d'écriture a déjà prise et qui ne peut donc plus être annulée.
+     L'attente ignore les interruptions, puisque les lignes seront écrites de toute façon.
+     */
+    private static void awaitTaken(CompletableFuture<Void> written) throws ExecutionException {
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            throw new ExecutionException(e.getCause());
+        }
+    }
+}
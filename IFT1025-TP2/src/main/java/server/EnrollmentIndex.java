@@ -0,0 +1,147 @@
+package server;
+
+import server.models.Course;
+import server.models.RegistrationForm;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * La classe EnrollmentIndex garde en mémoire l'ensemble des inscriptions déjà enregistrées, identifiées par le
+ * matricule de l'étudiant, la session et le code du cours. Elle permet de reconnaître une inscription répétée en temps
+ * constant, sans relire le fichier des inscriptions : l'ajout d'une clé indique à lui seul si elle était déjà
+ * présente, même lorsque plusieurs connexions inscrivent le même étudiant au même moment.
+ * L'index compte aussi les inscrits de chaque cours pour chaque session. Chaque compteur est un entier atomique
+ * distinct : une place est réservée par compare-and-set tant que la capacité n'est pas atteinte, si bien que deux
+ * inscriptions à des cours différents ne se gênent jamais et qu'un cours ne dépasse jamais sa capacité, sans verrou.
+ */
+public class EnrollmentIndex {
+    private final Set<String> keys = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+    private int duplicates;
+
+    /**
+     * La méthode load construit l'index à partir d'un fichier au format d'inscription.txt. Comme ce fichier ne
+     * contient que le nom du cours, son code est retrouvé dans le catalogue ; un cours qui n'y figure plus est
+     * identifié par son nom. Les lignes incomplètes sont ignorées, et une ligne répétée n'est comptée qu'une fois.
+     * @param path le fichier des inscriptions ; s'il n'existe pas, l'index est vide.
+     * @param catalog le catalogue des cours.
+     * @return l'index des inscriptions du fichier.
+     * @throws IOException si le fichier ne peut pas être lu.
+     */
+    public static EnrollmentIndex load(Path path, CourseCatalog catalog) throws IOException {
+        EnrollmentIndex index = new EnrollmentIndex();
+        if (!Files.exists(path)) return index;
+        CourseCatalog.Snapshot snapshot = catalog.snapshot();
+        FieldCursor fields = new FieldCursor('\t');
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (fields.reset(line).remaining() < 3) continue;
+                String session = fields.next();
+                String name = fields.next();
+                String matricule = fields.next();
+                Course course = snapshot.findCourse(session, name);
+                String code = course == null ? name : course.getCode();
+                if (index.keys.add(key(matricule, session, code))) {
+                    index.counter(session, code).incrementAndGet();
+                } else {
+                    index.duplicates++;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * La méthode add ajoute l'inscription d'un formulaire à l'index.
+     * @param form le formulaire d'inscription.
+     * @return true si l'inscription est nouvelle, false si l'étudiant était déjà inscrit à ce cours pour cette
+     * session.
+     */
+    public boolean add(RegistrationForm form) {
+        return keys.add(key(form));
+    }
+
+    /**
+     * La méthode remove retire l'inscription d'un formulaire de l'index, par exemple lorsqu'elle n'a pas pu être
+     * enregistrée.
+     * @param form le formulaire d'inscription.
+     */
+    public void remove(RegistrationForm form) {
+        keys.remove(key(form));
+    }
+
+    /**
+     * La méthode reserveSeat réserve une place dans un cours, si sa capacité n'est pas atteinte.
+     * @param course le cours.
+     * @param capacity le nombre maximal d'inscrits du cours.
+     * @return true si la place a été réservée, false si le cours est complet.
+     */
+    public boolean reserveSeat(Course course, int capacity) {
+        AtomicInteger count = counter(course.getSession(), course.getCode());
+        int current;
+        do {
+            current = count.get();
+            if (current >= capacity) return false;
+        } while (!count.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * La méthode releaseSeat libère une place réservée par reserveSeat, par exemple lorsque l'inscription n'a pas pu
+     * être enregistrée.
+     * @param course le cours.
+     */
+    public void releaseSeat(Course course) {
+        counter(course.getSession(), course.getCode()).decrementAndGet();
+    }
+
+    /**
+     * La méthode getEnrollment retourne le nombre d'inscrits d'un cours pour une session.
+     * @param session la session du cours.
+     * @param code le code du cours.
+     * @return le nombre d'inscrits, places réservées comprises.
+     */
+    public int getEnrollment(String session, String code) {
+        AtomicInteger count = counts.get(session + '\t' + code);
+        return count == null ? 0 : count.get();
+    }
+
+    public boolean contains(RegistrationForm form) {
+        return keys.contains(key(form));
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * La méthode getDuplicates retourne le nombre de lignes répétées trouvées dans le fichier lors du chargement.
+     * @return le nombre de doublons du fichier.
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    private AtomicInteger counter(String session, String code) {
+        String key = session + '\t' + code;
+        AtomicInteger count = counts.get(key);
+        return count != null ? count : counts.computeIfAbsent(key, k -> new AtomicInteger());
+    }
+
+    private static String key(RegistrationForm form) {
+        Course course = form.getCourse();
+        return key(form.getMatricule(), course.getSession(), course.getCode());
+    }
+
+    private static String key(String matricule, String session, String code) {
+        return matricule + '\t' + session + '\t' + code;
+    }
+}
@@ -0,0 +1,143 @@
+package server;
+
+import java.util.NoSuchElementException;
+
+/**
+ * La classe FieldCursor parcourt les champs d'une ligne séparés par un caractère, par exemple les tabulations de
+ * cours.txt et d'inscription.txt ou les espaces d'une ligne de commande. Contrairement à String.split, elle ne crée
+ * ni tableau ni liste : seuls les champs demandés avec next deviennent des chaînes, et les autres peuvent être sautés
+ * ou lus comme des entiers sans allocation. Un même curseur peut être replacé sur chaque ligne d'un fichier avec
+ * reset.
+ * Comme String.split avec une limite négative, le curseur garde les champs vides, y compris à la fin de la ligne.
+ * Un curseur n'est utilisé que par un seul thread.
+ */
+public class FieldCursor {
+    private final char separator;
+    private String line = "";
+    private int position;
+    private boolean done = true;
+
+    /**
+     * La méthode FieldCursor est le constructeur de sa classe. Le curseur ne contient aucun champ avant l'appel de
+     * reset.
+     * @param separator le caractère qui sépare les champs.
+     */
+    public FieldCursor(char separator) {
+        this.separator = separator;
+    }
+
+    /**
+     * La méthode FieldCursor construit un curseur placé au début d'une ligne.
+     * @param line la ligne à parcourir.
+     * @param separator le caractère qui sépare les champs.
+     */
+    public FieldCursor(String line, char separator) {
+        this(separator);
+        reset(line);
+    }
+
+    /**
+     * La méthode reset place le curseur au début d'une nouvelle ligne.
+     * @param line la ligne à parcourir.
+     * @return le curseur lui-même.
+     */
+    public FieldCursor reset(String line) {
+        this.line = line;
+        this.position = 0;
+        this.done = false;
+        return this;
+    }
+
+    /**
+     * La méthode hasNext indique s'il reste un champ, éventuellement vide, à lire.
+     * @return true s'il reste un champ, false sinon.
+     */
+    public boolean hasNext() {
+        return !done;
+    }
+
+    /**
+     * La méthode remaining compte les champs qui restent à lire, sans les lire.
+     * @return le nombre de champs restants.
+     */
+    public int remaining() {
+        if (done) return 0;
+        int count = 1;
+        for (int i = position; i < line.length(); i++) {
+            if (line.charAt(i) == separator) count++;
+        }
+        return count;
+    }
+
+    /**
+     * La méthode next lit le champ suivant.
+     * @return le champ, qui peut être vide.
+     * @throws NoSuchElementException s'il ne reste aucun champ.
+     */
+    public String next() {
+        int start = position;
+        return line.substring(start, advance());
+    }
+
+    /**
+     * La méthode skip passe le champ suivant sans créer de chaîne.
+     * @throws NoSuchElementException s'il ne reste aucun champ.
+     */
+    public void skip() {
+        advance();
+    }
+
+    /**
+     * La méthode nextInt lit le champ suivant comme un entier décimal, sans créer de chaîne. Les espaces qui
+     * entourent le nombre sont ignorés.
+     * @param fallback la valeur retournée si le champ n'est pas un entier valide.
+     * @return l'entier lu, ou fallback.
+     * @throws NoSuchElementException s'il ne reste aucun champ.
+     */
+    public int nextInt(int fallback) {
+        int start = position;
+        int end = advance();
+        while (start < end && line.charAt(start) == ' ') start++;
+        while (end > start && line.charAt(end - 1) == ' ') end--;
+        boolean negative = start < end && line.charAt(start) == '-';
+        if (negative || (start < end && line.charAt(start) == '+')) start++;
+        if (start == end) return fallback;
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') return fallback;
+            value = value * 10 + (c - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) return fallback;
+        }
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE ? fallback : (int) value;
+    }
+
+    /**
+     * La méthode rest lit d'un coup tout ce qui suit le champ courant, séparateurs compris, mais sans les séparateurs
+     * qui terminent la ligne. Pour une ligne de commande, c'est l'argument qui suit le nom de la commande.
+     * @return le reste de la ligne, ou une chaîne vide s'il ne reste aucun champ.
+     */
+    public String rest() {
+        if (done) return "";
+        int end = line.length();
+        while (end > position && line.charAt(end - 1) == separator) end--;
+        String rest = line.substring(position, end);
+        position = line.length();
+        done = true;
+        return rest;
+    }
+
+    private int advance() {
+        if (done) throw new NoSuchElementException();
+        int end = line.indexOf(separator, position);
+        if (end < 0) {
+            end = line.length();
+            done = true;
+            position = end;
+        } else {
+            position = end + 1;
+        }
+        return end;
+    }
+}
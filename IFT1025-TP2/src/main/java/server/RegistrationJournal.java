@@ -0,0 +1,273 @@
+package server;
+
+import server.models.RegistrationForm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * La classe RegistrationJournal enregistre les formulaires d'inscription à la fin du fichier inscription.txt. Un seul
+ * thread écrit dans le fichier : les formulaires soumis pendant qu'il écrit sont regroupés et ajoutés en une seule
+ * écriture au tour suivant, ce qui évite que des lignes écrites par plusieurs connexions s'entremêlent. Chaque
+ * soumission retourne un CompletableFuture qui n'est complété qu'une fois la ligne durable selon la politique choisie.
+ * Un lot de formulaires soumis ensemble est toujours écrit dans une même écriture. Une soumission peut être annulée
+ * tant que le thread d'écriture ne l'a pas prise : ses formulaires ne seront alors jamais écrits.
+ */
+public class RegistrationJournal implements Closeable {
+    /**
+     * Chemin par défaut du fichier des inscriptions.
+     */
+    public final static String DEFAULT_PATH = "./src/main/java/server/data/inscription.txt";
+    /**
+     * Nombre maximal de formulaires regroupés dans une même écriture.
+     */
+    public final static int MAX_BATCH = 1024;
+
+    /**
+     * L'énumération Durability indique quand une inscription est considérée comme durable.
+     */
+    public enum Durability {
+        /**
+         * Dès qu'elle est écrite dans le fichier, sans attendre que le système la synchronise sur le disque.
+         */
+        NONE,
+        /**
+         * Après la synchronisation sur le disque (fsync) du groupe d'écritures qui la contient.
+         */
+        BATCH,
+        /**
+         * Après la prochaine synchronisation périodique, faite au plus une fois par intervalle.
+         */
+        INTERVAL
+    }
+
+    private static final Entry CLOSE = new Entry(null, false);
+    private final Path path;
+    private final FileChannel channel;
+    private final Durability durability;
+    private final long syncIntervalNanos;
+    private final LinkedBlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * La méthode RegistrationJournal est le constructeur de sa classe. Elle ouvre le fichier en ajout et démarre le
+     * thread d'écriture.
+     * @param path le chemin du fichier des inscriptions.
+     * @param durability la politique de durabilité.
+     * @param syncInterval l'intervalle, en millisecondes, entre deux synchronisations pour la politique INTERVAL.
+     * @throws IOException si le fichier ne peut pas être ouvert.
+     */
+    public RegistrationJournal(String path, Durability durability, long syncInterval) throws IOException {
+        this.path = Paths.get(path);
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.durability = durability;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncInterval);
+        this.writer = new Thread(this::writeLoop, "journal-inscriptions");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * La méthode submit confie un formulaire au thread d'écriture.
+     * @param form le formulaire à enregistrer.
+     * @return un CompletableFuture complété lorsque l'inscription est durable, ou en erreur si elle n'a pas pu être
+     * écrite.
+     */
+    public CompletableFuture<Void> submit(RegistrationForm form) {
+        return submitAll(Collections.singletonList(form));
+    }
+
+    /**
+     * La méthode submitAll confie un lot de formulaires au thread d'écriture, qui les ajoute au fichier en une seule
+     * écriture.
+     * @param forms les formulaires à enregistrer.
+     * @return un CompletableFuture complété lorsque tout le lot est durable, ou en erreur s'il n'a pas pu être écrit.
+     * Sa méthode cancel retourne true seulement si le lot attendait encore d'être pris par le thread d'écriture, auquel
+     * cas aucun de ses formulaires n'est écrit ; une fois le lot pris, elle retourne false et le lot sera écrit.
+     */
+    public CompletableFuture<Void> submitAll(List<RegistrationForm> forms) {
+        return enqueue(new Entry(forms, false));
+    }
+
+    /**
+     * La méthode sync demande au thread d'écriture de synchroniser le fichier sur le disque sans attendre la fin de
+     * l'intervalle, de sorte que les inscriptions déjà soumises soient confirmées aussitôt.
+     * @return un CompletableFuture complété lorsque les formulaires soumis auparavant sont durables.
+     */
+    public CompletableFuture<Void> sync() {
+        return enqueue(new Entry(Collections.emptyList(), true));
+    }
+
+    private CompletableFuture<Void> enqueue(Entry entry) {
+        if (closed) {
+            entry.done.completeExceptionally(new IllegalStateException("Le journal des inscriptions est fermé."));
+        } else {
+            queue.add(entry);
+        }
+        return entry.done;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * La méthode toLine retourne la ligne du fichier des inscriptions correspondant à un formulaire : la session, le
+     * nom du cours, le matricule, le prénom, le nom et l'email, séparés par des tabulations.
+     * @param form le formulaire d'inscription.
+     * @return la ligne, terminée par un saut de ligne.
+     */
+    public static String toLine(RegistrationForm form) {
+        return form.getCourse().getSession() + "\t" + form.getCourse().getName() + "\t" + form.getMatricule() + "\t"
+                + form.getPrenom() + "\t" + form.getNom() + "\t" + form.getEmail() + "\n";
+    }
+
+    /**
+     * La méthode close cesse d'accepter des formulaires, attend que ceux déjà soumis soient écrits, synchronise le
+     * fichier sur le disque quelle que soit la politique de durabilité, puis le ferme.
+     * @throws IOException si une erreur survient lors de la fermeture du fichier.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        queue.add(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        List<Entry> unsynced = new ArrayList<>();
+        long lastSync = System.nanoTime();
+        boolean closing = false;
+
+        while (!closing) {
+            try {
+                Entry first;
+                if (unsynced.isEmpty()) {
+                    first = queue.take();
+                } else {
+                    first = queue.poll(lastSync + syncIntervalNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+                }
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                }
+                closing = batch.remove(CLOSE);
+                boolean syncNow = closing;
+                for (Entry entry : batch) syncNow |= entry.sync;
+
+                write(batch);
+                if (durability == Durability.NONE) {
+                    complete(batch);
+                } else {
+                    unsynced.addAll(batch);
+                    if (durability == Durability.BATCH || syncNow
+                            || System.nanoTime() - lastSync >= syncIntervalNanos) {
+                        if (!unsynced.isEmpty()) channel.force(false);
+                        lastSync = System.nanoTime();
+                        complete(unsynced);
+                    }
+                }
+            } catch (InterruptedException e) {
+                closing = true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                fail(batch, e);
+                fail(unsynced, e);
+            }
+            batch.clear();
+        }
+
+        IllegalStateException rejected = new IllegalStateException("Le journal des inscriptions est fermé.");
+        for (Entry entry : unsynced) entry.done.completeExceptionally(rejected);
+        for (Entry entry : queue) entry.done.completeExceptionally(rejected);
+    }
+
+    private void write(List<Entry> batch) throws IOException {
+        if (batch.isEmpty()) return;
+        StringBuilder lines = new StringBuilder(batch.size() * 96);
+        for (Entry entry : batch) {
+            if (!entry.take()) continue;
+            for (RegistrationForm form : entry.forms) lines.append(toLine(form));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void complete(List<Entry> entries) {
+        for (Entry entry : entries) {
+            if (!entry.isCancelled()) entry.done.complete(null);
+        }
+        entries.clear();
+    }
+
+    private static void fail(List<Entry> entries, IOException e) {
+        for (Entry entry : entries) {
+            if (!entry.isCancelled()) entry.done.completeExceptionally(e);
+        }
+        entries.clear();
+    }
+
+    /**
+     * La classe Entry associe les formulaires d'une soumission en attente d'écriture au CompletableFuture de son
+     * appelant. Une demande de synchronisation est une soumission sans formulaire qui force la synchronisation.
+     * L'état de la soumission tranche entre son annulation et sa prise par le thread d'écriture : seule la première
+     * des deux réussit, et une soumission annulée n'est jamais complétée par le thread d'écriture.
+     */
+    private static class Entry {
+        private static final int QUEUED = 0;
+        private static final int TAKEN = 1;
+        private static final int CANCELLED = 2;
+        private final List<RegistrationForm> forms;
+        private final boolean sync;
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private final CompletableFuture<Void> done = new CompletableFuture<Void>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                if (!state.compareAndSet(QUEUED, CANCELLED)) return false;
+                super.cancel(mayInterruptIfRunning);
+                return true;
+            }
+        };
+
+        Entry(List<RegistrationForm> forms, boolean sync) {
+            this.forms = forms;
+            this.sync = sync;
+        }
+
+        boolean take() {
+            return state.compareAndSet(QUEUED, TAKEN);
+        }
+
+        boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package server;
+
+import server.models.Course;
+import server.models.RegistrationForm;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * La classe RegistrationStore conserve les inscriptions dans un fichier projeté en mémoire, sous forme
+ * d'enregistrements binaires de taille fixe : le n-ième enregistrement commence toujours à la même position, si bien
+ * qu'un ajout n'écrit que ses propres octets et qu'une lecture n'a rien à analyser. Deux index en mémoire associent
+ * à chaque matricule et à chaque code de cours la liste des numéros de ses enregistrements ; ils sont reconstruits à
+ * l'ouverture en parcourant le fichier. Les enregistrements retournés sont des vues sur la projection, décodées
+ * seulement lorsqu'un champ est lu.
+ * Le fichier texte inscription.txt reste la référence : le magasin peut en être reconstruit par importText et y être
+ * exporté par exportText. Comme ce fichier ne contient que le nom du cours, son code est retrouvé dans le catalogue
+ * lors de l'importation.
+ */
+public class RegistrationStore implements Closeable {
+    /**
+     * Taille, en octets, d'un enregistrement.
+     */
+    public final static int RECORD_SIZE = 256;
+    /**
+     * Taille, en octets, de l'en-tête du fichier.
+     */
+    public final static int HEADER_SIZE = 64;
+
+    private static final int MAGIC = 0x49465452;
+    private static final int VERSION = 1;
+    private static final int COUNT_POSITION = 8;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int MATRICULE = 0, MATRICULE_WIDTH = 16;
+    private static final int SESSION = 16, SESSION_WIDTH = 16;
+    private static final int CODE = 32, CODE_WIDTH = 16;
+    private static final int COURSE_NAME = 48, COURSE_NAME_WIDTH = 64;
+    private static final int PRENOM = 112, PRENOM_WIDTH = 48;
+    private static final int NOM = 160, NOM_WIDTH = 48;
+    private static final int EMAIL = 208, EMAIL_WIDTH = 48;
+
+    private final FileChannel channel;
+    private final Map<String, IntList> byMatricule = new HashMap<>();
+    private final Map<String, IntList> byCourse = new HashMap<>();
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+
+    /**
+     * La méthode RegistrationStore est le constructeur de sa classe. Elle ouvre le fichier, le crée au besoin, le
+     * projette en mémoire et reconstruit les index à partir des enregistrements qu'il contient.
+     * @param path le chemin du fichier binaire des inscriptions.
+     * @throws IOException si le fichier ne peut pas être ouvert ou n'est pas un magasin d'inscriptions.
+     */
+    public RegistrationStore(String path) throws IOException {
+        this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size == 0) {
+                map(INITIAL_CAPACITY);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(COUNT_POSITION, 0);
+            } else {
+                if (size < HEADER_SIZE) throw new IOException("Le fichier " + path + " est tronqué.");
+                map((int) Math.max(INITIAL_CAPACITY, (size - HEADER_SIZE) / RECORD_SIZE));
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                    throw new IOException("Le fichier " + path + " n'est pas un magasin d'inscriptions.");
+                }
+                count = buffer.getInt(COUNT_POSITION);
+                if (count < 0 || count > capacity) throw new IOException("Le fichier " + path + " est corrompu.");
+                for (int i = 0; i < count; i++) {
+                    index(i, read(buffer, i, MATRICULE, MATRICULE_WIDTH), read(buffer, i, CODE, CODE_WIDTH));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * La méthode append ajoute une inscription à la fin du magasin. Le nombre d'enregistrements inscrit dans l'en-tête
+     * n'est mis à jour qu'une fois l'enregistrement écrit, si bien qu'un arrêt brutal ne laisse jamais
+     * d'enregistrement à moitié écrit. La projection est doublée lorsque le fichier est plein.
+     * @param form le formulaire d'inscription.
+     * @return le numéro de l'enregistrement.
+     * @throws IllegalArgumentException si un champ ne tient pas dans sa largeur fixe.
+     * @throws IOException si le fichier ne peut pas être agrandi.
+     */
+    public synchronized int append(RegistrationForm form) throws IOException {
+        Course course = form.getCourse();
+        byte[][] fields = encode(form);
+        if (count == capacity) map(capacity * 2);
+        int start = HEADER_SIZE + count * RECORD_SIZE;
+        int[] offsets = {MATRICULE, SESSION, CODE, COURSE_NAME, PRENOM, NOM, EMAIL};
+        ByteBuffer record = buffer.duplicate();
+        record.position(start);
+        record.put(new byte[RECORD_SIZE]);
+        for (int i = 0; i < fields.length; i++) {
+            record.position(start + offsets[i]);
+            record.put(fields[i]);
+        }
+        int n = count++;
+        buffer.putInt(COUNT_POSITION, count);
+        index(n, form.getMatricule(), course.getCode());
+        return n;
+    }
+
+    /**
+     * La méthode get retourne un enregistrement à partir de son numéro.
+     * @param n le numéro de l'enregistrement.
+     * @return une vue sur l'enregistrement.
+     * @throws IndexOutOfBoundsException si le numéro ne correspond à aucun enregistrement.
+     */
+    public synchronized Record get(int n) {
+        if (n < 0 || n >= count) throw new IndexOutOfBoundsException("Enregistrement inexistant : " + n);
+        return new Record(buffer, n);
+    }
+
+    /**
+     * La méthode findByMatricule retourne les inscriptions d'un étudiant, dans l'ordre où elles ont été ajoutées.
+     * @param matricule le matricule de l'étudiant.
+     * @return les enregistrements, ou une liste vide.
+     */
+    public synchronized List<Record> findByMatricule(String matricule) {
+        return records(byMatricule.get(matricule));
+    }
+
+    /**
+     * La méthode findByCourse retourne les inscriptions à un cours, dans l'ordre où elles ont été ajoutées.
+     * @param code le code du cours.
+     * @return les enregistrements, ou une liste vide.
+     */
+    public synchronized List<Record> findByCourse(String code) {
+        return records(byCourse.get(code));
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * La méthode importText ajoute au magasin les inscriptions d'un fichier au format d'inscription.txt. Le code de
+     * chaque cours est retrouvé dans le catalogue à partir de sa session et de son nom ; il est laissé vide si le
+     * cours n'y figure pas.
+     * @param path le fichier texte à importer.
+     * @param catalog le catalogue des cours.
+     * @return le nombre d'inscriptions importées.
+     * @throws IOException si le fichier ne peut pas être lu, ou si une ligne est invalide.
+     */
+    public int importText(Path path, CourseCatalog catalog) throws IOException {
+        CourseCatalog.Snapshot snapshot = catalog.snapshot();
+        int imported = 0;
+        int lineNumber = 0;
+        FieldCursor fields = new FieldCursor('\t');
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) continue;
+                int count = fields.reset(line).remaining();
+                if (count != 6) {
+                    throw new IOException("Ligne " + lineNumber + " invalide : " + count + " champs.");
+                }
+                String session = fields.next();
+                String name = fields.next();
+                String matricule = fields.next();
+                Course known = snapshot.findCourse(session, name);
+                Course course = new Course(name, known == null ? "" : known.getCode(), session);
+                try {
+                    append(new RegistrationForm(fields.next(), fields.next(), fields.next(), matricule, course));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Ligne " + lineNumber + " invalide : " + e.getMessage(), e);
+                }
+                imported++;
+            }
+        }
+        return imported;
+    }
+
+    /**
+     * La méthode exportText écrit toutes les inscriptions du magasin dans un fichier au format d'inscription.txt, dans
+     * l'ordre où elles ont été ajoutées.
+     * @param path le fichier texte à écrire ; il est remplacé s'il existe.
+     * @throws IOException si le fichier ne peut pas être écrit.
+     */
+    public void exportText(Path path) throws IOException {
+        int n = size();
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < n; i++) {
+                writer.write(RegistrationJournal.toLine(get(i).toForm()));
+            }
+        }
+    }
+
+    /**
+     * La méthode force synchronise sur le disque les enregistrements ajoutés depuis la dernière synchronisation.
+     */
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    /**
+     * La méthode close synchronise le magasin sur le disque, puis ferme le fichier. Les enregistrements déjà
+     * retournés restent lisibles tant que la projection n'est pas libérée par le ramasse-miettes.
+     * @throws IOException si une erreur survient lors de la fermeture du fichier.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void map(int records) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) records * RECORD_SIZE);
+        capacity = records;
+    }
+
+    private void index(int n, String matricule, String code) {
+        byMatricule.computeIfAbsent(matricule, k -> new IntList()).add(n);
+        if (!code.isEmpty()) byCourse.computeIfAbsent(code, k -> new IntList()).add(n);
+    }
+
+    private List<Record> records(IntList numbers) {
+        if (numbers == null) return Collections.emptyList();
+        ByteBuffer view = buffer;
+        int[] values = Arrays.copyOf(numbers.values, numbers.size);
+        return new AbstractList<Record>() {
+            @Override
+            public Record get(int i) {
+                return new Record(view, values[i]);
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+
+    /**
+     * La méthode validate vérifie qu'un formulaire pourra être ajouté au magasin, de sorte qu'une inscription soit
+     * refusée avant d'être écrite dans le journal plutôt qu'après.
+     * @param form le formulaire d'inscription.
+     * @throws IllegalArgumentException si un champ ne tient pas dans sa largeur fixe.
+     */
+    public static void validate(RegistrationForm form) {
+        encode(form);
+    }
+
+    private static byte[][] encode(RegistrationForm form) {
+        Course course = form.getCourse();
+        return new byte[][] {
+                encode("matricule", form.getMatricule(), MATRICULE_WIDTH),
+                encode("session", course.getSession(), SESSION_WIDTH),
+                encode("code", course.getCode(), CODE_WIDTH),
+                encode("cours", course.getName(), COURSE_NAME_WIDTH),
+                encode("prénom", form.getPrenom(), PRENOM_WIDTH),
+                encode("nom", form.getNom(), NOM_WIDTH),
+                encode("email", form.getEmail(), EMAIL_WIDTH)
+        };
+    }
+
+    private static byte[] encode(String field, String value, int width) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > width) {
+            throw new IllegalArgumentException("Le champ " + field + " dépasse " + width + " octets : " + value);
+        }
+        return bytes;
+    }
+
+    private static String read(ByteBuffer buffer, int n, int offset, int width) {
+        int start = HEADER_SIZE + n * RECORD_SIZE + offset;
+        int length = 0;
+        while (length < width && buffer.get(start + length) != 0) length++;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) bytes[i] = buffer.get(start + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * La méthode main convertit un fichier d'inscriptions d'un format à l'autre.
+     * @param args "import inscription.txt inscription.bin" pour construire un magasin à partir du fichier texte
+     *             (les codes des cours sont retrouvés dans le catalogue par défaut), ou
+     *             "export inscription.bin inscription.txt" pour écrire le fichier texte d'un magasin.
+     */
+    public static void main(String[] args) {
+        if (args.length != 3 || !(args[0].equals("import") || args[0].equals("export"))) {
+            System.out.println("Usage : RegistrationStore import <texte> <magasin> | export <magasin> <texte>");
+            return;
+        }
+        try {
+            if (args[0].equals("import")) {
+                try (RegistrationStore store = new RegistrationStore(args[2])) {
+                    int n = store.importText(Paths.get(args[1]), new CourseCatalog());
+                    System.out.println(n + " inscriptions importées dans " + args[2]);
+                }
+            } else {
+                try (RegistrationStore store = new RegistrationStore(args[1])) {
+                    store.exportText(Paths.get(args[2]));
+                    System.out.println(store.size() + " inscriptions exportées dans " + args[2]);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * La classe Record est une vue sur un enregistrement du magasin. Chaque champ est décodé à la demande, directement
+     * depuis la projection du fichier.
+     */
+    public static class Record {
+        private final ByteBuffer buffer;
+        private final int number;
+
+        Record(ByteBuffer buffer, int number) {
+            this.buffer = buffer;
+            this.number = number;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public String getMatricule() {
+            return read(buffer, number, MATRICULE, MATRICULE_WIDTH);
+        }
+
+        public String getSession() {
+            return read(buffer, number, SESSION, SESSION_WIDTH);
+        }
+
+        public String getCode() {
+            return read(buffer, number, CODE, CODE_WIDTH);
+        }
+
+        public String getCourseName() {
+            return read(buffer, number, COURSE_NAME, COURSE_NAME_WIDTH);
+        }
+
+        public String getPrenom() {
+            return read(buffer, number, PRENOM, PRENOM_WIDTH);
+        }
+
+        public String getNom() {
+            return read(buffer, number, NOM, NOM_WIDTH);
+        }
+
+        public String getEmail() {
+            return read(buffer, number, EMAIL, EMAIL_WIDTH);
+        }
+
+        /**
+         * La méthode toForm décode tous les champs de l'enregistrement.
+         * @return le formulaire d'inscription correspondant.
+         */
+        public RegistrationForm toForm() {
+            return new RegistrationForm(getPrenom(), getNom(), getEmail(), getMatricule(),
+                    new Course(getCourseName(), getCode(), getSession()));
+        }
+    }
+
+    /**
+     * La classe IntList est une liste d'entiers sans objets intermédiaires, utilisée par les index.
+     */
+    private static class IntList {
+        private int[] values = new int[2];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+}
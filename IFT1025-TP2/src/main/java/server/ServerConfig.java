@@ -0,0 +1,282 @@
+package server;
+
+/**
+ * La classe ServerConfig regroupe les paramètres de lancement d'un serveur. Les valeurs par défaut peuvent être
+ * remplacées par des options en ligne de commande de la forme "--option valeur".
+ */
+public class ServerConfig {
+    /**
+     * Port utilisé par défaut pour lancer le serveur.
+     */
+    public final static int DEFAULT_PORT = 1337;
+    /**
+     * Nombre maximal de connexions servies en même temps par défaut par un moteur qui occupe un thread de la
+     * plateforme par connexion.
+     */
+    public final static int DEFAULT_MAX_CONNECTIONS = 1024;
+
+    /**
+     * L'énumération Execution indique sur quels threads le serveur multithread traite les connexions.
+     */
+    public enum Execution {
+        /**
+         * Un bassin borné de threads de la plateforme, avec une file d'attente de connexions.
+         */
+        POOL,
+        /**
+         * Un thread virtuel par connexion, sans limite de nombre (Java 21 ou plus récent).
+         */
+        VIRTUAL
+    }
+
+    /**
+     * L'énumération Duplicates indique comment le serveur répond à une inscription déjà enregistrée.
+     */
+    public enum Duplicates {
+        /**
+         * L'inscription est refusée avec un message d'erreur.
+         */
+        REJECT,
+        /**
+         * L'inscription est confirmée sans être écrite une seconde fois.
+         */
+        IGNORE
+    }
+
+    private int port = DEFAULT_PORT;
+    private int threads = Runtime.getRuntime().availableProcessors() * 2;
+    private int queueCapacity = 64;
+    private int idleTimeout = 30000;
+    private int workerIdleTimeout = 3000;
+    private RegistrationJournal.Durability durability = RegistrationJournal.Durability.BATCH;
+    private int syncInterval = 0;
+    private Execution execution = Execution.POOL;
+    private int eventLoops = Runtime.getRuntime().availableProcessors();
+    private String metricsFile;
+    private int metricsInterval = 10000;
+    private String storeFile;
+    private Duplicates duplicates = Duplicates.REJECT;
+    private int maxConnections;
+    private int waitTimeout = 5000;
+    private int retryAfter = 1000;
+    private int backlog = 128;
+    private int shutdownTimeout = 10000;
+    private String adminToken;
+
+    /**
+     * La méthode parse construit une configuration à partir des arguments en ligne de commande. Les options reconnues
+     * sont "--port", "--threads" (taille du bassin de travailleurs), "--queue" (nombre maximal de connexions en attente
+     * d'un travailleur), "--idle-timeout" (délai d'inactivité, en millisecondes, avant la fermeture d'une connexion
+     * persistante servie par un thread virtuel ou par le serveur NIO), "--worker-idle-timeout" (délai, plus court, pour
+     * une connexion qui occupe un travailleur du bassin ou l'unique thread du serveur simple, afin qu'un client inactif
+     * ne prive pas les autres d'un travailleur), "--durability" (quand une inscription est confirmée : "none" dès son
+     * écriture, "batch" après la synchronisation de son groupe d'écritures, ou un nombre de millisecondes entre deux
+     * synchronisations périodiques), "--execution" ("pool" pour le bassin de travailleurs, "virtual" pour un thread
+     * virtuel par connexion), "--loops" (nombre de boucles d'événements du serveur NIO), "--metrics-file" (fichier JSON
+     * où les mesures du serveur sont réécrites périodiquement ; aucun par défaut), "--metrics-interval" (intervalle, en
+     * millisecondes, entre deux écritures), "--store" (magasin binaire des inscriptions tenu à jour en plus du fichier
+     * texte ; aucun par défaut), "--duplicates" ("reject" pour refuser une inscription déjà enregistrée, "ignore" pour
+     * la confirmer sans l'écrire de nouveau), "--max-connections" (nombre maximal de connexions servies en même temps,
+     * DEFAULT_MAX_CONNECTIONS par défaut avec le bassin de travailleurs et le serveur simple, sans limite par défaut
+     * avec les threads virtuels et le serveur NIO ; les suivantes attendent dans une file dont la taille est fixée par
+     * "--queue"), "--wait-timeout" (délai maximal, en millisecondes, d'attente d'une connexion dans cette file),
+     * "--retry-after" (délai, en millisecondes, que le serveur conseille à un client refusé avant de réessayer),
+     * "--backlog" (nombre de connexions que le système garde en attente d'être acceptées), "--shutdown-timeout" (délai,
+     * en millisecondes, accordé aux requêtes en cours lors de l'arrêt du serveur) et "--admin-token" (jeton à joindre à
+     * la commande d'arrêt, qui n'est pas acceptée sans lui ; aucun par défaut).
+     * @param args les arguments en ligne de commande.
+     * @return la configuration correspondante.
+     * @throws IllegalArgumentException si une option est inconnue, incomplète ou invalide.
+     */
+    public static ServerConfig parse(String[] args) {
+        ServerConfig config = new ServerConfig();
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Valeur manquante pour l'option " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--port":
+                    config.port = parsePositive(option, value);
+                    break;
+                case "--threads":
+                    config.threads = parsePositive(option, value);
+                    break;
+                case "--queue":
+                    config.queueCapacity = parsePositive(option, value);
+                    break;
+                case "--idle-timeout":
+                    config.idleTimeout = parsePositive(option, value);
+                    break;
+                case "--worker-idle-timeout":
+                    config.workerIdleTimeout = parsePositive(option, value);
+                    break;
+                case "--durability":
+                    if (value.equals("none")) {
+                        config.durability = RegistrationJournal.Durability.NONE;
+                    } else if (value.equals("batch")) {
+                        config.durability = RegistrationJournal.Durability.BATCH;
+                    } else {
+                        config.durability = RegistrationJournal.Durability.INTERVAL;
+                        config.syncInterval = parsePositive(option, value);
+                    }
+                    break;
+                case "--execution":
+                    if (value.equals("pool")) config.execution = Execution.POOL;
+                    else if (value.equals("virtual")) config.execution = Execution.VIRTUAL;
+                    else throw new IllegalArgumentException("Mode d'exécution inconnu : " + value);
+                    break;
+                case "--loops":
+                    config.eventLoops = parsePositive(option, value);
+                    break;
+                case "--metrics-file":
+                    config.metricsFile = value;
+                    break;
+                case "--metrics-interval":
+                    config.metricsInterval = parsePositive(option, value);
+                    break;
+                case "--store":
+                    config.storeFile = value;
+                    break;
+                case "--duplicates":
+                    if (value.equals("reject")) config.duplicates = Duplicates.REJECT;
+                    else if (value.equals("ignore")) config.duplicates = Duplicates.IGNORE;
+                    else throw new IllegalArgumentException("Traitement des doublons inconnu : " + value);
+                    break;
+                case "--max-connections":
+                    config.maxConnections = parsePositive(option, value);
+                    break;
+                case "--wait-timeout":
+                    config.waitTimeout = parsePositive(option, value);
+                    break;
+                case "--retry-after":
+                    config.retryAfter = parsePositive(option, value);
+                    break;
+                case "--backlog":
+                    config.backlog = parsePositive(option, value);
+                    break;
+                case "--shutdown-timeout":
+                    config.shutdownTimeout = parsePositive(option, value);
+                    break;
+                case "--admin-token":
+                    config.adminToken = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Option inconnue : " + option);
+            }
+        }
+        return config;
+    }
+
+    private static int parsePositive(String option, String value) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) return n;
+        } catch (NumberFormatException e) {
+            // traité ci-dessous
+        }
+        throw new IllegalArgumentException("L'option " + option + " attend un entier positif : " + value);
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public int getWorkerIdleTimeout() {
+        return workerIdleTimeout;
+    }
+
+    public RegistrationJournal.Durability getDurability() {
+        return durability;
+    }
+
+    public int getSyncInterval() {
+        return syncInterval;
+    }
+
+    public Execution getExecution() {
+        return execution;
+    }
+
+    public int getEventLoops() {
+        return eventLoops;
+    }
+
+    /**
+     * La méthode getMetricsFile retourne le fichier où les mesures sont écrites périodiquement.
+     * @return le chemin du fichier, ou null si les mesures ne sont pas écrites.
+     */
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+
+    public int getMetricsInterval() {
+        return metricsInterval;
+    }
+
+    /**
+     * La méthode getStoreFile retourne le fichier du magasin binaire des inscriptions.
+     * @return le chemin du fichier, ou null si les inscriptions ne sont écrites que dans le fichier texte.
+     */
+    public String getStoreFile() {
+        return storeFile;
+    }
+
+    public Duplicates getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * La méthode getMaxConnections retourne le nombre maximal de connexions servies en même temps.
+     * @return la valeur de "--max-connections", ou DEFAULT_MAX_CONNECTIONS si l'option est absente.
+     */
+    public int getMaxConnections() {
+        return maxConnections > 0 ? maxConnections : DEFAULT_MAX_CONNECTIONS;
+    }
+
+    /**
+     * La méthode hasMaxConnections indique si le nombre maximal de connexions a été fixé avec "--max-connections".
+     * Sinon, un moteur qui n'occupe pas un thread de la plateforme par connexion peut lever la limite.
+     * @return true si l'option est présente, false sinon.
+     */
+    public boolean hasMaxConnections() {
+        return maxConnections > 0;
+    }
+
+    public int getWaitTimeout() {
+        return waitTimeout;
+    }
+
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public int getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    /**
+     * La méthode getAdminToken retourne le jeton que la commande d'arrêt doit fournir.
+     * @return le jeton, ou null si la commande d'arrêt n'est pas acceptée.
+     */
+    public String getAdminToken() {
+        return adminToken;
+    }
+}
@@ -0,0 +1,159 @@
+package server;
+
+import server.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * La classe ServerContext regroupe l'état partagé par toutes les connexions d'un serveur : sa configuration, le
+ * catalogue des cours avec le cache de ses réponses encodées, le journal des inscriptions avec l'index des
+ * inscriptions déjà enregistrées et, s'il y a lieu, leur magasin binaire, les mesures d'exécution, le registre des
+ * commandes avec l'exécuteur des gestionnaires qui ne doivent pas occuper le thread de lecture, les gestionnaires
+ * d'événements supplémentaires, le contrôle d'admission et l'arrêt du serveur.
+ */
+public class ServerContext {
+    private final ServerConfig config;
+    private final CourseCatalog catalog;
+    private final RegistrationJournal journal;
+    private final EnrollmentIndex enrollments;
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final List<EventHandler> handlers = new CopyOnWriteArrayList<>();
+    private final CommandRegistry commands = new CommandRegistry();
+    private final CatalogResponseCache responseCache = new CatalogResponseCache();
+    private final AdmissionControl admission;
+    private final ServerShutdown shutdown = new ServerShutdown(this);
+    private final ExecutorService handlerExecutor;
+    private volatile RegistrationStore store;
+
+    /**
+     * La méthode ServerContext est le constructeur de sa classe. Elle enregistre les commandes fournies par le
+     * serveur, crée l'exécuteur des gestionnaires, dont la taille est celle du bassin de travailleurs, et construit
+     * l'index des inscriptions à partir du fichier du journal.
+     * @param config la configuration du serveur.
+     * @param catalog le catalogue des cours.
+     * @param journal le journal des inscriptions.
+     * @throws IOException si le fichier du journal ne peut pas être lu.
+     */
+    public ServerContext(ServerConfig config, CourseCatalog catalog, RegistrationJournal journal) throws IOException {
+        this.config = config;
+        this.catalog = catalog;
+        this.journal = journal;
+        this.admission = new AdmissionControl(config);
+        metrics.setQueueDepth(admission::getWaiting);
+        this.enrollments = EnrollmentIndex.load(journal.getPath(), catalog);
+        if (enrollments.getDuplicates() > 0) {
+            System.out.println(enrollments.getDuplicates() + " inscriptions en double dans " + journal.getPath());
+        }
+        AtomicInteger count = new AtomicInteger();
+        this.handlerExecutor = Executors.newFixedThreadPool(config.getThreads(), r -> {
+            Thread thread = new Thread(r, "gestionnaire-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        DefaultCommands.register(this);
+    }
+
+    /**
+     * La méthode ServerContext construit le contexte d'un serveur à partir des fichiers de données par défaut. Si la
+     * configuration indique un fichier de mesures, celles-ci y sont écrites périodiquement. Si elle indique un magasin
+     * des inscriptions, celui-ci est ouvert ; s'il est vide, les inscriptions du fichier texte y sont importées.
+     * @param config la configuration du serveur.
+     * @throws IOException si le catalogue ne peut pas être chargé, le journal ouvert ou le magasin construit.
+     */
+    public ServerContext(ServerConfig config) throws IOException {
+        this(config, new CourseCatalog(), new RegistrationJournal(RegistrationJournal.DEFAULT_PATH,
+                config.getDurability(), config.getSyncInterval()));
+        if (config.getMetricsFile() != null) {
+            metrics.startDump(Paths.get(config.getMetricsFile()), config.getMetricsInterval());
+        }
+        if (config.getStoreFile() != null) {
+            RegistrationStore opened = new RegistrationStore(config.getStoreFile());
+            Path text = Paths.get(RegistrationJournal.DEFAULT_PATH);
+            if (opened.size() == 0 && Files.exists(text)) opened.importText(text, catalog);
+            setStore(opened);
+        }
+    }
+
+    public ServerConfig getConfig() {
+        return config;
+    }
+
+    public CourseCatalog getCatalog() {
+        return catalog;
+    }
+
+    public RegistrationJournal getJournal() {
+        return journal;
+    }
+
+    public EnrollmentIndex getEnrollments() {
+        return enrollments;
+    }
+
+    /**
+     * La méthode getStore retourne le magasin binaire où les inscriptions confirmées sont ajoutées.
+     * @return le magasin, ou null si aucun n'est utilisé.
+     */
+    public RegistrationStore getStore() {
+        return store;
+    }
+
+    public void setStore(RegistrationStore store) {
+        this.store = store;
+    }
+
+    /**
+     * La méthode getAdmission retourne le contrôle d'admission partagé par toutes les connexions du serveur.
+     * @return le contrôle d'admission.
+     */
+    public AdmissionControl getAdmission() {
+        return admission;
+    }
+
+    /**
+     * La méthode getShutdown retourne l'arrêt du serveur, auprès duquel les canaux d'écoute et les connexions
+     * ouvertes s'inscrivent pour être drainés.
+     * @return l'arrêt du serveur.
+     */
+    public ServerShutdown getShutdown() {
+        return shutdown;
+    }
+
+    public CatalogResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * La méthode getCommands retourne le registre des commandes. Des commandes peuvent y être ajoutées pendant que le
+     * serveur traite des connexions.
+     * @return le registre des commandes.
+     */
+    public CommandRegistry getCommands() {
+        return commands;
+    }
+
+    public ExecutorService getHandlerExecutor() {
+        return handlerExecutor;
+    }
+
+    /**
+     * La méthode getHandlers retourne les gestionnaires d'événements supplémentaires. La liste peut être modifiée
+     * pendant que le serveur traite des connexions.
+     * @return la liste des gestionnaires.
+     */
+    public List<EventHandler> getHandlers() {
+        return handlers;
+    }
+}
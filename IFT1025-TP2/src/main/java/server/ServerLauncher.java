@@ -7,18 +7,21 @@ public class ServerLauncher {
     /**
      * Port utilisé pour lancer le serveur.
      */
-    public final static int PORT = 1337;
+    public final static int PORT = ServerConfig.DEFAULT_PORT;
 
     /**
      * La méthode main est le point d'entrée du programme. Elle lance un serveur à l'aide de la classe Server, sur le
-     * port spécifié par la constante PORT. Le serveur est ensuite exécuté. La méthode est également responsable de la
-     * gestion des exceptions qui pourraient survenir pendant l'exécution du serveur.
-     * @param args les arguments en ligne de commande (non utilisés)
+     * port spécifié par l'option "--port" (la constante PORT par défaut). Le serveur est ensuite exécuté. La méthode
+     * est également responsable de la gestion des exceptions qui pourraient survenir pendant l'exécution du serveur.
+     * Le serveur est arrêté proprement à la fin du processus ou sur la commande d'arrêt.
+     * @param args les options en ligne de commande, par exemple "--port 1337 --durability batch".
      */
     public static void main(String[] args) {
         Server server;
         try {
-            server = new Server(PORT);
+            ServerConfig config = ServerConfig.parse(args);
+            server = new Server(config);
+            server.getShutdown().addHook();
             System.out.println("Server is running...");
             server.run();
         } catch (Exception e) {
@@ -0,0 +1,175 @@
+package server;
+
+import server.metrics.ServerMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * La classe ServerShutdown arrête un serveur sans perdre les requêtes qu'il traite. L'arrêt ferme d'abord les canaux
+ * d'écoute et refuse les connexions en attente d'une place ; à partir de là, toute nouvelle requête reçoit une réponse
+ * BUSY, ce qui renvoie le client vers un autre serveur ou vers le même une fois redémarré. Les requêtes en cours ont
+ * ensuite jusqu'au délai donné pour se terminer ; pendant cette attente, le journal est synchronisé sans attendre
+ * son intervalle, pour que les inscriptions en cours soient confirmées. Les connexions cessent alors d'être lues et
+ * se ferment dès que leurs réponses sont envoyées. Enfin, le journal des inscriptions est vidé et synchronisé sur le
+ * disque, tout comme le magasin binaire, et un rapport de ce qui a été drainé est affiché et retourné.
+ * L'arrêt n'a lieu qu'une fois : les appels suivants retournent le même rapport.
+ */
+public class ServerShutdown {
+    private static final long POLL_INTERVAL = 10;
+    private final ServerContext context;
+    private final Set<Closeable> listeners = ConcurrentHashMap.newKeySet();
+    private final Set<Closeable> connections = ConcurrentHashMap.newKeySet();
+    private final CompletableFuture<String> report = new CompletableFuture<>();
+    private volatile boolean stopping;
+
+    /**
+     * La méthode ServerShutdown est le constructeur de sa classe.
+     * @param context le contexte du serveur à arrêter.
+     */
+    ServerShutdown(ServerContext context) {
+        this.context = context;
+    }
+
+    /**
+     * La méthode addListener ajoute un canal d'écoute à fermer au début de l'arrêt. Un canal ajouté après le début de
+     * l'arrêt est fermé aussitôt.
+     * @param listener le canal d'écoute, par exemple un ServerSocket.
+     */
+    public void addListener(Closeable listener) {
+        listeners.add(listener);
+        if (stopping && listeners.remove(listener)) closeQuietly(listener);
+    }
+
+    /**
+     * La méthode addConnection ajoute une connexion ouverte. Sa méthode close doit cesser de lire la connexion et la
+     * fermer une fois ses réponses envoyées ; elle est appelée une fois les requêtes en cours terminées.
+     * @param connection la connexion, à retirer avec removeConnection lorsqu'elle se ferme.
+     */
+    public void addConnection(Closeable connection) {
+        connections.add(connection);
+    }
+
+    public void removeConnection(Closeable connection) {
+        connections.remove(connection);
+    }
+
+    /**
+     * La méthode isStopping indique si l'arrêt a commencé, auquel cas les nouvelles requêtes doivent être refusées.
+     * @return true si le serveur s'arrête, false sinon.
+     */
+    public boolean isStopping() {
+        return stopping;
+    }
+
+    /**
+     * La méthode start commence l'arrêt sur un thread dédié, sans attendre qu'il se termine.
+     * @param timeout le délai, en millisecondes, accordé aux requêtes en cours et à l'envoi de leurs réponses.
+     * @return un CompletableFuture complété par le rapport d'arrêt.
+     */
+    public CompletableFuture<String> start(long timeout) {
+        if (begin()) {
+            Thread thread = new Thread(() -> drain(timeout), "arret");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return report;
+    }
+
+    /**
+     * La méthode stop arrête le serveur et attend la fin de l'arrêt. Elle convient à un crochet d'arrêt de la JVM.
+     * @param timeout le délai, en millisecondes, accordé aux requêtes en cours et à l'envoi de leurs réponses.
+     * @return le rapport d'arrêt, en JSON.
+     */
+    public String stop(long timeout) {
+        if (begin()) drain(timeout);
+        return report.join();
+    }
+
+    /**
+     * La méthode awaitStop attend la fin d'un arrêt déjà commencé.
+     * @return le rapport d'arrêt, en JSON.
+     */
+    public String awaitStop() {
+        return report.join();
+    }
+
+    /**
+     * La méthode addHook demande à la JVM d'arrêter le serveur avant de se terminer, par exemple lorsque le processus
+     * reçoit SIGTERM ou Ctrl-C, avec le délai de la configuration.
+     */
+    public void addHook() {
+        long timeout = context.getConfig().getShutdownTimeout();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> stop(timeout), "crochet-arret"));
+    }
+
+    private synchronized boolean begin() {
+        if (stopping) return false;
+        stopping = true;
+        return true;
+    }
+
+    private void drain(long timeout) {
+        long start = System.currentTimeMillis();
+        long deadline = start + timeout;
+        ServerMetrics metrics = context.getMetrics();
+        try {
+            for (Closeable listener : new ArrayList<>(listeners)) {
+                listeners.remove(listener);
+                closeQuietly(listener);
+            }
+            int refused = context.getAdmission().close();
+            long inFlight = metrics.getInFlightRequests();
+
+            CompletableFuture<Void> sync = context.getJournal().sync();
+            while (metrics.getInFlightRequests() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(POLL_INTERVAL);
+                if (sync.isDone()) sync = context.getJournal().sync();
+            }
+            long abandoned = metrics.getInFlightRequests();
+            List<Closeable> open = new ArrayList<>(connections);
+            for (Closeable connection : open) closeQuietly(connection);
+            while (!connections.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(POLL_INTERVAL);
+            }
+            int remaining = connections.size();
+
+            String journal = "synchronisé";
+            try {
+                context.getJournal().close();
+                RegistrationStore store = context.getStore();
+                if (store != null) store.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+                journal = "erreur";
+            }
+            metrics.close();
+
+            String json = "{\"inFlight\":" + inFlight + ",\"drained\":" + (inFlight - Math.min(inFlight, abandoned))
+                    + ",\"abandoned\":" + abandoned + ",\"refused\":" + refused + ",\"connections\":" + open.size()
+                    + ",\"unclosed\":" + remaining + ",\"journal\":\"" + journal + "\",\"millis\":"
+                    + (System.currentTimeMillis() - start) + "}";
+            System.out.println("Serveur arrêté : " + json);
+            report.complete(json);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.completeExceptionally(e);
+        } catch (RuntimeException e) {
+            report.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // la ressource est abandonnée de toute façon
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package server.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * La classe CommandMetrics accumule les mesures d'une commande : le nombre de requêtes traitées, le nombre de réponses
+ * en erreur et la durée de traitement de chaque requête, de sa lecture à l'envoi de sa réponse.
+ */
+public final class CommandMetrics {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * La méthode record ajoute une requête traitée.
+     * @param nanos la durée du traitement, en nanosecondes.
+     * @param ok false si la réponse envoyée était une erreur.
+     */
+    public void record(long nanos, boolean ok) {
+        count.increment();
+        if (!ok) errors.increment();
+        latency.record(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
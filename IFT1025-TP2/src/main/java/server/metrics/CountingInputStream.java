@@ -0,0 +1,49 @@
+package server.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * La classe CountingInputStream ajoute à un compteur le nombre d'octets lus dans le flux qu'elle enveloppe.
+ */
+public class CountingInputStream extends FilterInputStream {
+    private final LongAdder counter;
+
+    /**
+     * La méthode CountingInputStream est le constructeur de sa classe.
+     * @param in le flux à envelopper.
+     * @param counter le compteur des octets lus, qui peut être partagé entre plusieurs flux.
+     */
+    public CountingInputStream(InputStream in, LongAdder counter) {
+        super(in);
+        this.counter = counter;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) counter.increment();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) counter.add(n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        counter.add(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
@@ -0,0 +1,35 @@
+package server.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * La classe CountingOutputStream ajoute à un compteur le nombre d'octets écrits dans le flux qu'elle enveloppe.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+    private final LongAdder counter;
+
+    /**
+     * La méthode CountingOutputStream est le constructeur de sa classe.
+     * @param out le flux à envelopper.
+     * @param counter le compteur des octets écrits, qui peut être partagé entre plusieurs flux.
+     */
+    public CountingOutputStream(OutputStream out, LongAdder counter) {
+        super(out);
+        this.counter = counter;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        counter.increment();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        counter.add(len);
+    }
+}
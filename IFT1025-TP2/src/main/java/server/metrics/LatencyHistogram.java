@@ -0,0 +1,99 @@
+package server.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * La classe LatencyHistogram compte des durées, en microsecondes, dans des classes de largeur croissante : chaque
+ * puissance de deux est découpée en seize classes, ce qui garde une erreur relative d'au plus 1/16 sur les centiles
+ * tout en couvrant n'importe quelle durée avec un tableau de taille fixe. L'enregistrement n'utilise aucun verrou et
+ * peut être fait par plusieurs threads à la fois.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * La méthode record ajoute une durée à l'histogramme.
+     * @param nanos la durée, en nanosecondes.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(index(micros));
+        count.increment();
+        total.add(micros);
+        long current = max.get();
+        while (micros > current && !max.compareAndSet(current, micros)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * La méthode getCount retourne le nombre de durées enregistrées.
+     * @return le nombre de durées.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * La méthode getMean retourne la durée moyenne.
+     * @return la moyenne, en microsecondes, ou 0 si aucune durée n'a été enregistrée.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * La méthode getMax retourne la plus longue durée enregistrée.
+     * @return la durée maximale, en microsecondes.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * La méthode percentile retourne la durée sous laquelle se trouve la proportion demandée des durées enregistrées.
+     * La valeur retournée est la borne supérieure de la classe qui contient ce centile, sans dépasser le maximum.
+     * @param fraction la proportion, entre 0 et 1 (0.99 pour le 99e centile).
+     * @return la durée, en microsecondes, ou 0 si aucune durée n'a été enregistrée.
+     */
+    public long percentile(double fraction) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    static int index(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        int sub = (int) (micros >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
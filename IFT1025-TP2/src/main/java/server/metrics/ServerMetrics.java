@@ -0,0 +1,249 @@
+package server.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * La classe ServerMetrics regroupe les mesures d'un serveur pendant son exécution : les compteurs et la durée de
+ * traitement de chaque commande, le temps passé dans les gestionnaires d'événements ajoutés, les connexions ouvertes,
+ * acceptées et refusées, les requêtes en cours, les connexions en attente d'un travailleur et les octets reçus et
+ * envoyés. Toutes les mises à jour se font sans verrou. Les mesures peuvent être obtenues au format JSON, par la
+ * commande STATS ou dans un fichier réécrit périodiquement.
+ */
+public class ServerMetrics implements Closeable {
+    /**
+     * Nom sous lequel sont comptées les commandes qu'aucun gestionnaire n'a traitées, pour ne pas créer une entrée par
+     * commande inconnue reçue.
+     */
+    public final static String UNKNOWN_COMMAND = "INCONNUE";
+    private final long startTime = System.currentTimeMillis();
+    private final ConcurrentHashMap<String, CommandMetrics> commands = new ConcurrentHashMap<>();
+    private final LatencyHistogram handlers = new LatencyHistogram();
+    private final LongAdder activeConnections = new LongAdder();
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final LongAdder rejectedConnections = new LongAdder();
+    private final LongAdder inFlightRequests = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private volatile IntSupplier queueDepth = () -> 0;
+    private ScheduledExecutorService dumper;
+
+    /**
+     * La méthode command retourne les mesures d'une commande, créées à sa première utilisation.
+     * @param name le nom de la commande.
+     * @return les mesures de la commande.
+     */
+    public CommandMetrics command(String name) {
+        CommandMetrics metrics = commands.get(name);
+        return metrics != null ? metrics : commands.computeIfAbsent(name, n -> new CommandMetrics());
+    }
+
+    /**
+     * La méthode getHandlers retourne l'histogramme du temps passé, pour chaque requête, dans les gestionnaires
+     * d'événements ajoutés au serveur.
+     * @return l'histogramme des durées.
+     */
+    public LatencyHistogram getHandlers() {
+        return handlers;
+    }
+
+    /**
+     * La méthode connectionOpened compte une connexion acceptée, qui reste ouverte jusqu'à l'appel de
+     * connectionClosed.
+     */
+    public void connectionOpened() {
+        acceptedConnections.increment();
+        activeConnections.increment();
+    }
+
+    public void connectionClosed() {
+        activeConnections.decrement();
+    }
+
+    /**
+     * La méthode connectionRejected compte une connexion refusée parce que le serveur était saturé.
+     */
+    public void connectionRejected() {
+        rejectedConnections.increment();
+    }
+
+    /**
+     * La méthode requestStarted compte une requête en cours de traitement jusqu'à l'appel de requestFinished.
+     */
+    public void requestStarted() {
+        inFlightRequests.increment();
+    }
+
+    public void requestFinished() {
+        inFlightRequests.decrement();
+    }
+
+    /**
+     * La méthode setQueueDepth indique comment connaître le nombre de connexions en attente d'un travailleur ou d'une
+     * place auprès du contrôle d'admission.
+     * @param queueDepth la fonction qui retourne ce nombre.
+     */
+    public void setQueueDepth(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * La méthode countInput enveloppe le flux d'entrée d'une connexion pour compter les octets reçus.
+     * @param in le flux d'entrée du socket.
+     * @return le flux qui compte les octets lus.
+     */
+    public InputStream countInput(InputStream in) {
+        return new CountingInputStream(in, bytesIn);
+    }
+
+    /**
+     * La méthode countOutput enveloppe le flux de sortie d'une connexion pour compter les octets envoyés.
+     * @param out le flux de sortie du socket.
+     * @return le flux qui compte les octets écrits.
+     */
+    public OutputStream countOutput(OutputStream out) {
+        return new CountingOutputStream(out, bytesOut);
+    }
+
+    /**
+     * La méthode addBytesIn compte des octets reçus sans passer par un flux enveloppé.
+     * @param n le nombre d'octets reçus.
+     */
+    public void addBytesIn(long n) {
+        bytesIn.add(n);
+    }
+
+    /**
+     * La méthode addBytesOut compte des octets envoyés sans passer par un flux enveloppé.
+     * @param n le nombre d'octets envoyés.
+     */
+    public void addBytesOut(long n) {
+        bytesOut.add(n);
+    }
+
+    public long getActiveConnections() {
+        return activeConnections.sum();
+    }
+
+    public long getAcceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    public long getInFlightRequests() {
+        return inFlightRequests.sum();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * La méthode toJson retourne l'état courant des mesures dans un objet JSON. Les durées sont en microsecondes.
+     * @return le texte JSON, sur une seule ligne.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"timestamp\":").append(System.currentTimeMillis())
+                .append(",\"uptimeMs\":").append(System.currentTimeMillis() - startTime)
+                .append(",\"connections\":{\"active\":").append(getActiveConnections())
+                .append(",\"accepted\":").append(getAcceptedConnections())
+                .append(",\"rejected\":").append(getRejectedConnections())
+                .append("},\"inFlight\":").append(getInFlightRequests())
+                .append(",\"queued\":").append(queueDepth.getAsInt())
+                .append(",\"bytesIn\":").append(getBytesIn())
+                .append(",\"bytesOut\":").append(getBytesOut())
+                .append(",\"commands\":{");
+        boolean first = true;
+        for (Map.Entry<String, CommandMetrics> entry : new TreeMap<>(commands).entrySet()) {
+            if (!first) json.append(',');
+            first = false;
+            CommandMetrics metrics = entry.getValue();
+            json.append('"').append(escape(entry.getKey())).append("\":{\"count\":").append(metrics.getCount())
+                    .append(",\"errors\":").append(metrics.getErrors()).append(',');
+            appendLatency(json, metrics.getLatency());
+            json.append('}');
+        }
+        json.append("},\"handlers\":{");
+        appendLatency(json, handlers);
+        return json.append("}}").toString();
+    }
+
+    private static void appendLatency(StringBuilder json, LatencyHistogram latency) {
+        json.append("\"samples\":").append(latency.getCount())
+                .append(",\"meanUs\":").append(Math.round(latency.getMean()))
+                .append(",\"p50Us\":").append(latency.percentile(0.50))
+                .append(",\"p95Us\":").append(latency.percentile(0.95))
+                .append(",\"p99Us\":").append(latency.percentile(0.99))
+                .append(",\"maxUs\":").append(latency.getMax());
+    }
+
+    private static String escape(String s) {
+        StringBuilder escaped = new StringBuilder(s.length());
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') escaped.append('\\').append(c);
+            else if (c < 0x20) escaped.append(String.format("\\u%04x", (int) c));
+            else escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * La méthode startDump réécrit périodiquement les mesures dans un fichier, par un thread dédié. Le fichier est
+     * d'abord écrit à côté puis renommé, de sorte qu'un lecteur ne voit jamais un contenu partiel.
+     * @param file le fichier à réécrire.
+     * @param interval l'intervalle entre deux écritures, en millisecondes.
+     */
+    public synchronized void startDump(Path file, long interval) {
+        if (dumper != null) return;
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "export-metriques");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleWithFixedDelay(() -> dump(file), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * La méthode dump écrit les mesures courantes dans un fichier.
+     * @param file le fichier à réécrire.
+     */
+    public void dump(Path file) {
+        try {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, (toJson() + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * La méthode close arrête l'écriture périodique des mesures.
+     */
+    @Override
+    public synchronized void close() {
+        if (dumper != null) dumper.shutdownNow();
+    }
+}
@@ -0,0 +1,53 @@
+package server.models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * La classe CourseList est une liste de cours d'une session accompagnée de la version du catalogue dont elle provient.
+ * Un client qui la garde en cache renvoie cette version avec sa prochaine demande, et le serveur ne lui renvoie la
+ * liste que si elle a changé. Lorsque la liste n'est qu'une page ou une partie d'un envoi en plusieurs trames, elle
+ * indique aussi la position de son premier cours et le nombre total de cours de la session. Comme elle hérite
+ * d'ArrayList, elle peut être utilisée partout où une liste de cours est attendue.
+ */
+public class CourseList extends ArrayList<Course> {
+    private static final long serialVersionUID = 1L;
+    private final long version;
+    private final int offset;
+    private final int total;
+
+    /**
+     * La méthode CourseList est le constructeur de sa classe.
+     * @param courses une partie des cours de la session.
+     * @param version la version de la liste dans le catalogue du serveur.
+     * @param offset la position, dans la liste complète, du premier cours de cette partie.
+     * @param total le nombre de cours de la liste complète.
+     */
+    public CourseList(Collection<Course> courses, long version, int offset, int total) {
+        super(courses);
+        this.version = version;
+        this.offset = offset;
+        this.total = total;
+    }
+
+    /**
+     * La méthode CourseList construit la liste complète des cours d'une session.
+     * @param courses les cours de la session.
+     * @param version la version de la liste dans le catalogue du serveur.
+     */
+    public CourseList(Collection<Course> courses, long version) {
+        this(courses, version, 0, courses.size());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
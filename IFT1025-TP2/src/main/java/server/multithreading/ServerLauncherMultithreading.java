@@ -1,6 +1,8 @@
 package server.multithreading;
 
-import server.multithreading.ServerMultithreading;
+import server.ServerConfig;
+import server.ServerContext;
+
 import java.net.ServerSocket;
 
 /**
@@ -10,24 +12,30 @@ public class ServerLauncherMultithreading {
     /**
      * Port utilisé pour lancer le serveur.
      */
-    public final static int PORT = 1337;
+    public final static int PORT = ServerConfig.DEFAULT_PORT;
 
     /**
-     * La méthode main est le point d'entrée du programme. Elle  crée un socket serveur pour accepter les connexions
-     * entrantes des clients, puis crée un thread pour chaque client connecté. La méthode est également responsable de
-     * la gestion des exceptions qui pourraient survenir pendant l'exécution du serveur.
-     * @param args les arguments en ligne de commande (non utilisés)
+     * La méthode main est le point d'entrée du programme. Elle crée un socket serveur pour accepter les connexions
+     * entrantes des clients, charge le catalogue des cours et ouvre le journal des inscriptions, puis lance un serveur
+     * multithread dont le bassin de travailleurs est dimensionné par les options "--threads" et "--queue", ou qui
+     * utilise un thread virtuel par connexion avec "--execution virtual". La méthode est également responsable de la
+     * gestion des exceptions qui pourraient survenir pendant l'exécution du serveur. Le serveur est arrêté proprement à
+     * la fin du processus ou sur la commande d'arrêt.
+     * @param args les options en ligne de commande, par exemple "--port 1337 --threads 16 --queue 128".
      */
     public static void main(String[] args) {
-        ServerSocket server;
-        ServerMultithreading clientSock;
         try {
-            server = new ServerSocket(PORT);
-            System.out.println("Server is running...");
-            while (true) {
-                clientSock = new ServerMultithreading(server);
-                new Thread(clientSock).start();
+            ServerConfig config = ServerConfig.parse(args);
+            ServerSocket server = new ServerSocket(config.getPort(), config.getBacklog());
+            ServerContext context = new ServerContext(config);
+            context.getShutdown().addHook();
+            ServerMultithreading clientSock = new ServerMultithreading(server, context);
+            if (clientSock.getExecution() == ServerConfig.Execution.VIRTUAL) {
+                System.out.println("Server is running with one virtual thread per connection...");
+            } else {
+                System.out.println("Server is running with " + config.getThreads() + " workers...");
             }
+            clientSock.run();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -1,202 +1,175 @@
 package server.multithreading;
 
-import javafx.util.Pair;
+import server.AdmissionControl;
+import server.ClientHandler;
 import server.EventHandler;
-import server.models.Course;
-import server.models.RegistrationForm;
+import server.ServerConfig;
+import server.ServerContext;
+import server.ServerShutdown;
 
-import java.io.*;
+import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * La classe Server implémente l'interface Runnable. Elle définit les comportements d'un serveur. Elle permet
- * d'accepter les connexions des clients, de gérer les commandes envoyées par le client, de transmettre les données au
- * client et gérer les exceptions lors des opérations de lecture ou d'écriture.
+ * La classe ServerMultithreading implémente l'interface Runnable. Elle définit un serveur dont un seul thread accepte
+ * les connexions des clients et les confie à un bassin borné de travailleurs. Chaque connexion est traitée par son
+ * propre ClientHandler ; au-delà de la capacité de la file d'attente, les nouvelles connexions sont refusées : un
+ * petit exécuteur distinct leur répond BUSY, et les ferme simplement s'il est lui-même débordé.
+ * En mode d'exécution VIRTUAL, chaque connexion reçoit plutôt son propre thread virtuel, ce qui permet de garder
+ * ouvertes des dizaines de milliers de connexions lentes ou inactives ; dans le bassin, une connexion inactive est
+ * fermée après un délai plus court pour libérer son travailleur. Si la JVM ne fournit pas de threads virtuels, le
+ * serveur revient au bassin de travailleurs.
  */
 public class ServerMultithreading implements Runnable{
     /**
      * Commande d'inscription utilisée pour enregistrer un étudiant à un cours.
      */
-    public final static String REGISTER_COMMAND = "INSCRIRE";
+    public final static String REGISTER_COMMAND = ClientHandler.REGISTER_COMMAND;
     /**
      * Commande pour charger la liste des cours d'une session spécifique.
      */
-    public final static String LOAD_COMMAND = "CHARGER";
+    public final static String LOAD_COMMAND = ClientHandler.LOAD_COMMAND;
+    private final static int REFUSAL_QUEUE = 64;
     private final ServerSocket server;
-    private Socket client;
-    private ObjectInputStream objectInputStream;
-    private ObjectOutputStream objectOutputStream;
-    private final ArrayList<EventHandler> handlers;
+    private final ServerContext context;
+    private final ExecutorService workers;
+    private final ExecutorService refusals;
+    private final ServerConfig.Execution execution;
 
     /**
      * La méthode ServeurMultithreading est le constructeur de sa classe. Elle initialise le Serveur grâce au
-     * ServerSocket passe en paramètres. Elle initialise ensuite la liste des événements et ajoute l'événement de
-     * gestion des événements.
+     * ServerSocket passe en paramètres, puis crée l'exécuteur des connexions selon le mode d'exécution configuré.
+     * Avec les threads virtuels, le nombre de connexions servies en même temps n'est pas limité, sauf avec l'option
+     * "--max-connections".
      * @param server ServerSocket utilisé pour écouter les connexions entrantes.
-     * @throws IOException si une erreur survient lors de la création du du flux de sortie ou d'entrée.
+     * @param context l'état partagé par tous les travailleurs ; sa configuration fixe le mode d'exécution, le nombre
+     *                de travailleurs et la capacité de la file d'attente.
      */
-    public ServerMultithreading(ServerSocket server) {
+    public ServerMultithreading(ServerSocket server, ServerContext context) {
+        ServerConfig config = context.getConfig();
         this.server = server;
-        this.handlers = new ArrayList<EventHandler>();
-        this.addEventHandler(this::handleEvents);
+        this.context = context;
+        ExecutorService virtual = null;
+        if (config.getExecution() == ServerConfig.Execution.VIRTUAL) {
+            virtual = VirtualThreads.newExecutor("connexion-");
+            if (virtual == null) {
+                System.out.println("Threads virtuels indisponibles sur Java " + Runtime.version().feature()
+                        + ", utilisation du bassin de travailleurs.");
+            }
+        }
+        if (virtual != null) {
+            this.workers = virtual;
+            this.execution = ServerConfig.Execution.VIRTUAL;
+            if (!config.hasMaxConnections()) context.getAdmission().setMaxConnections(AdmissionControl.UNLIMITED);
+        } else {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(config.getThreads(), config.getThreads(), 0L,
+                    TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                    new WorkerThreadFactory());
+            context.getMetrics().setQueueDepth(() -> pool.getQueue().size() + context.getAdmission().getWaiting());
+            this.workers = pool;
+            this.execution = ServerConfig.Execution.POOL;
+        }
+        this.refusals = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(REFUSAL_QUEUE), new WorkerThreadFactory("refus-"));
+        context.getShutdown().addListener(server);
     }
 
     /**
-     * La méthode addEventHandler ajoute un gestionnaire d'événement passé en paramètre à la liste des gestionnaires.
-     * @param h le gestionnaire d'evenement a ajouter.
+     * La méthode getExecution retourne le mode d'exécution effectivement utilisé, qui peut différer de celui demandé
+     * si la JVM ne fournit pas de threads virtuels.
+     * @return le mode d'exécution.
      */
-    public void addEventHandler(EventHandler h) {
-        this.handlers.add(h);
+    public ServerConfig.Execution getExecution() {
+        return execution;
     }
 
     /**
-     * La méthode alertHandlers alerte tous les gestionnaires d'événements avec la commande et l'argument spécifiés.
-     * @param cmd la commande à transmettre.
-     * @param arg l'argument de la commande.
+     * La méthode addEventHandler ajoute un gestionnaire d'événement passé en paramètre à la liste des gestionnaires.
+     * Elle peut être appelée pendant que le serveur traite des connexions.
+     * @param h le gestionnaire d'evenement a ajouter.
      */
-    private void alertHandlers(String cmd, String arg) {
-        for (EventHandler h : this.handlers) {
-            h.handle(cmd, arg);
-        }
+    public void addEventHandler(EventHandler h) {
+        this.context.getHandlers().add(h);
     }
 
     /**
-     * La méthode run écoute en boucle les connexions entrantes et traite chaque demande reçue.
+     * La méthode run accepte en boucle les connexions entrantes et demande une place pour chacune d'elles au contrôle
+     * d'admission, sans attendre la réponse : une connexion n'est confiée au bassin de travailleurs qu'une fois admise,
+     * comme le fait le serveur NIO, si bien qu'aucun travailleur n'est bloqué par une connexion en attente. Une
+     * connexion refusée par l'admission, ou par le bassin lorsque sa file d'attente est pleine, reçoit une réponse
+     * BUSY. À l'arrêt du serveur, la méthode attend qu'il soit terminé, puis arrête les travailleurs et retourne.
      */
     public void run() {
-        while (true) {
+        ServerShutdown shutdown = context.getShutdown();
+        while (!shutdown.isStopping()) {
             try {
-                client = server.accept();
-                System.out.println("Connecté au client: " + client);
-                objectInputStream = new ObjectInputStream(client.getInputStream());
-                objectOutputStream = new ObjectOutputStream(client.getOutputStream());
-                listen();
-                disconnect();
-                System.out.println("Client déconnecté!");
-            } catch (Exception e) {
-                e.printStackTrace();
+                Socket client = server.accept();
+                ClientHandler handler = new ClientHandler(client, context);
+                if (execution == ServerConfig.Execution.VIRTUAL) {
+                    handler.setIdleTimeout(context.getConfig().getIdleTimeout());
+                }
+                context.getAdmission().admit().thenAccept(admitted -> start(handler, client, admitted));
+            } catch (IOException e) {
+                if (!shutdown.isStopping()) e.printStackTrace();
             }
         }
+        shutdown.awaitStop();
+        workers.shutdownNow();
+        refusals.shutdownNow();
     }
 
-    /**
-     * La méthode listen écoute les commandes envoyées par le client et les traite. Elle analyse la commande et appelle
-     * gestionnaire d'événements appropriés.
-     * @throws IOException si une erreur survient lors de la lecture des données envoyées par le client.
-     * @throws ClassNotFoundException si la classe d'un objet sérialisé reçu n'est pas trouvée.
-     */
-    public void listen() throws IOException, ClassNotFoundException {
-        String line;
-        if ((line = this.objectInputStream.readObject().toString()) != null) {
-            Pair<String, String> parts = processCommandLine(line);
-            String cmd = parts.getKey();
-            String arg = parts.getValue();
-            this.alertHandlers(cmd, arg);
+    private void start(ClientHandler handler, Socket client, boolean admitted) {
+        if (admitted) {
+            try {
+                workers.execute(handler);
+                return;
+            } catch (RejectedExecutionException e) {
+                context.getAdmission().release();
+                System.out.println("Serveur saturé, connexion refusée: " + client);
+            }
         }
-    }
-
-    /**
-     * La méthode processCommandeLine traite une ligne de commande et retourne ses différentes parties.
-     * @param line la ligne de commande à traiter.
-     * @return une paire de chaînes de caractères, représentant la commande et l'argument associé.
-     */
-    public Pair<String, String> processCommandLine(String line) {
-        String[] parts = line.split(" ");
-        String cmd = parts[0];
-        String args = String.join(" ", Arrays.asList(parts).subList(1, parts.length));
-        return new Pair<>(cmd, args);
-    }
-
-    /**
-     * La méthode disconnect ferme les flux d'entrée et de sortie du serveur. Elle stoppe alors sa connexion avec le
-     * client.
-     * @throws IOException si une erreur se produit lors de la fermeture des flux d'entrée et de sortie.
-     */
-    public void disconnect() throws IOException {
-        objectOutputStream.close();
-        objectInputStream.close();
-        client.close();
-    }
-
-    /**
-     * La méthode handleEvent traite les évènements en fonction de la commande reçue. Elle appelle ainsi la méthode
-     * adequate.
-     * @param cmd la commande à recue.
-     * @param arg l'argument de la commande.
-     */
-    public void handleEvents(String cmd, String arg) {
-        if (cmd.equals(REGISTER_COMMAND)) {
-            handleRegistration();
-        } else if (cmd.equals(LOAD_COMMAND)) {
-            handleLoadCourses(arg);
+        try {
+            refusals.execute(handler::refuse);
+        } catch (RejectedExecutionException e) {
+            context.getMetrics().connectionRejected();
+            close(client);
         }
     }
 
-    /**
-     Lire un fichier texte contenant des informations sur les cours et les transofmer en liste d'objets 'Course'.
-     La méthode filtre les cours par la session spécifiée en argument.
-     Ensuite, elle renvoie la liste des cours pour une session au client en utilisant l'objet 'objectOutputStream'.
-     La méthode gère les exceptions si une erreur se produit lors de la lecture du fichier ou de l'écriture de l'objet
-     dans le flux.
-     @param arg la session pour laquelle on veut récupérer la liste des cours
-     */
-    public void handleLoadCourses(String arg) {
+    private static void close(Socket client) {
         try {
-            FileInputStream fileInputStream = new FileInputStream("./src/main/java/server/data/cours.txt");
-            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(fileInputStream));
-            ArrayList<Course> courses = new ArrayList<>();
-            String line = bufferedReader.readLine();
-
-            while(line != null) {
-                String[] courseData = line.split("\t");
-                if(courseData[2].equals(arg)) {
-                    Course course = new Course(courseData[1], courseData[0], courseData[2]);
-                    courses.add(course);
-                }
-                line = bufferedReader.readLine();
-            }
-
-            bufferedReader.close();
-            fileInputStream.close();
-
-            objectOutputStream.writeObject(courses);
-            objectOutputStream.flush();
-
-        } catch(IOException e) {
-            e.printStackTrace();
+            client.close();
+        } catch (IOException e) {
+            // la connexion est refusée de toute façon
         }
     }
 
     /**
-     Récupérer l'objet 'RegistrationForm' envoyé par le client en utilisant 'objectInputStream', l'enregistrer dans un
-     fichier texte et renvoyer un message de confirmation au client.
-     La méthode gére les exceptions si une erreur se produit lors de la lecture de l'objet, l'écriture dans un fichier
-     ou dans le flux de sortie.
+     * La classe WorkerThreadFactory nomme les threads du serveur afin de les reconnaître dans les traces d'exécution.
      */
-    public void handleRegistration() {
-        try {
-            RegistrationForm registrationForm = (RegistrationForm) objectInputStream.readObject();
-            FileOutputStream fileOutputStream = new FileOutputStream(
-                    "./src/main/java/server/data/inscription.txt", true);
-            BufferedWriter bufferedWritter = new BufferedWriter(new OutputStreamWriter(fileOutputStream));
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
 
-            bufferedWritter.write(registrationForm.getCourse().getSession() + "\t");
-            bufferedWritter.write(registrationForm.getCourse().getName() + "\t");
-            bufferedWritter.write(registrationForm.getMatricule() + "\t");
-            bufferedWritter.write(registrationForm.getPrenom() + "\t");
-            bufferedWritter.write(registrationForm.getNom() + "\t");
-            bufferedWritter.write(registrationForm.getEmail() + "\n");
+        WorkerThreadFactory() {
+            this("travailleur-");
+        }
 
-            bufferedWritter.close();
-            fileOutputStream.close();
+        WorkerThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
 
-        } catch(IOException e) {
-            e.printStackTrace();
-        } catch(ClassNotFoundException e) {
-            e.printStackTrace();
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, prefix + count.incrementAndGet());
         }
     }
 }
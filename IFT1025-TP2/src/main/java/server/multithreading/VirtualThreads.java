@@ -0,0 +1,34 @@
+package server.multithreading;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * La classe VirtualThreads crée, lorsque la JVM le permet, un exécuteur qui lance chaque tâche sur son propre thread
+ * virtuel. Le projet est compilé pour Java 11 : les méthodes de Java 21 sont donc appelées par réflexion, et leur
+ * absence est signalée par un résultat null plutôt que par une erreur.
+ */
+final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    /**
+     * La méthode newExecutor crée un exécuteur à un thread virtuel par tâche.
+     * @param prefix le préfixe du nom des threads, suivi de leur numéro.
+     * @return l'exécuteur, ou null si la JVM ne fournit pas de threads virtuels.
+     */
+    static ExecutorService newExecutor(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            ThreadFactory factory = (ThreadFactory) ofVirtual.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 20 ou antérieur, ou threads virtuels en aperçu non activé
+            return null;
+        }
+    }
+}
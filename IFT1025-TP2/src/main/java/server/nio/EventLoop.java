@@ -0,0 +1,112 @@
+package server.nio;
+
+import server.ServerContext;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * La classe EventLoop surveille un groupe de connexions avec un Selector. Toutes les opérations sur ces connexions
+ * (lecture, écriture, fermeture) sont faites par le thread de la boucle ; les autres threads lui confient des tâches
+ * avec execute, qui sont exécutées au tour suivant. Les connexions restées inactives plus longtemps que le délai
+ * configuré sont fermées. Une boucle arrêtée ferme les connexions qui lui restent.
+ */
+class EventLoop implements Runnable {
+    private static final long IDLE_CHECK_INTERVAL = 1000;
+    private final Selector selector;
+    private final ServerContext context;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private boolean running = true;
+
+    EventLoop(ServerContext context) throws IOException {
+        this.selector = Selector.open();
+        this.context = context;
+    }
+
+    /**
+     * La méthode register confie une connexion acceptée à la boucle.
+     * @param channel le canal de la connexion.
+     * @param admitted true si le contrôle d'admission a donné une place à la connexion, false si elle doit être
+     *                 refusée.
+     */
+    void register(SocketChannel channel, boolean admitted) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                NioConnection connection = new NioConnection(channel, this, context, admitted);
+                connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+            } catch (IOException e) {
+                e.printStackTrace();
+                if (admitted) context.getAdmission().release();
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // la connexion est abandonnée de toute façon
+                }
+            }
+        });
+    }
+
+    /**
+     * La méthode execute fait exécuter une tâche par le thread de la boucle, dès que possible.
+     * @param task la tâche à exécuter.
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * La méthode stop demande à la boucle de fermer ses connexions restantes et son Selector, puis de se terminer.
+     */
+    void stop() {
+        execute(() -> running = false);
+    }
+
+    @Override
+    public void run() {
+        long idleTimeout = context.getConfig().getIdleTimeout();
+        long nextIdleCheck = System.currentTimeMillis() + IDLE_CHECK_INTERVAL;
+        while (running) {
+            try {
+                selector.select(IDLE_CHECK_INTERVAL);
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    NioConnection connection = (NioConnection) key.attachment();
+                    if (key.isValid() && key.isWritable()) connection.flush();
+                    if (key.isValid() && key.isReadable()) connection.read();
+                }
+                long now = System.currentTimeMillis();
+                if (now >= nextIdleCheck) {
+                    for (SelectionKey key : selector.keys()) {
+                        NioConnection connection = (NioConnection) key.attachment();
+                        if (connection.isIdle(now, idleTimeout)) connection.close();
+                    }
+                    nextIdleCheck = now + IDLE_CHECK_INTERVAL;
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            ((NioConnection) key.attachment()).close();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package server.nio;
+
+import server.AdmissionControl;
+import server.ClientHandler;
+import server.ServerContext;
+import server.ServerShutdown;
+import server.metrics.ServerMetrics;
+import server.protocol.BinaryCodec;
+import server.protocol.Request;
+import server.protocol.Response;
+import server.protocol.ResponseStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * La classe NioConnection garde l'état d'une connexion servie par une EventLoop : le tampon des octets reçus et les
+ * trames en attente d'envoi. La lecture, l'écriture et la fermeture sont faites par le thread de la boucle. Chaque
+ * requête décodée est confiée au registre des commandes : la réponse d'un gestionnaire exécuté directement est
+ * envoyée aussitôt, celle d'un gestionnaire exécuté sur un exécuteur est rendue à la boucle lorsqu'elle est prête.
+ * Tant qu'un client a MAX_PENDING réponses en attente d'un exécuteur, la boucle cesse de lire sa connexion.
+ * Les parties d'une réponse en flux ne sont encodées qu'une fois les trames précédentes écrites : un client qui lit
+ * lentement ralentit la production des parties au lieu de faire grandir la file d'envoi.
+ * Une connexion que le contrôle d'admission a refusée répond BUSY à sa première requête, puis est fermée dès que la
+ * réponse est écrite. Pendant l'arrêt du serveur, une connexion répond BUSY aux nouvelles requêtes ; lorsqu'elle est
+ * drainée, elle cesse d'être lue et se ferme une fois ses réponses en attente envoyées.
+ */
+class NioConnection {
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_PENDING = 64;
+    private final SocketChannel channel;
+    private final EventLoop loop;
+    private final ServerMetrics metrics;
+    private final ClientHandler handler;
+    private final AdmissionControl admission;
+    private final boolean admitted;
+    private final ServerShutdown shutdown;
+    private final Closeable drain;
+    private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+    private final ArrayDeque<Iterator<Response>> streams = new ArrayDeque<>();
+    private ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+    private SelectionKey key;
+    private boolean negotiated;
+    private int pending;
+    private boolean closing;
+    private boolean closed;
+    private long lastActivity = System.currentTimeMillis();
+
+    NioConnection(SocketChannel channel, EventLoop loop, ServerContext context, boolean admitted) {
+        this.channel = channel;
+        this.loop = loop;
+        this.metrics = context.getMetrics();
+        this.handler = new ClientHandler(context);
+        this.admission = context.getAdmission();
+        this.admitted = admitted;
+        this.shutdown = context.getShutdown();
+        this.drain = () -> loop.execute(this::drain);
+        if (admitted) {
+            metrics.connectionOpened();
+            shutdown.addConnection(drain);
+        } else {
+            metrics.connectionRejected();
+        }
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * La méthode read lit les octets disponibles, puis décode et transmet chaque trame complète. Une trame
+     * incomplète reste dans le tampon, agrandi au besoin, jusqu'à la lecture suivante.
+     */
+    void read() {
+        int n;
+        try {
+            n = channel.read(input);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (n < 0) {
+            close();
+            return;
+        }
+        metrics.addBytesIn(n);
+        lastActivity = System.currentTimeMillis();
+
+        input.flip();
+        int needed = BUFFER_SIZE;
+        try {
+            if (!negotiated) {
+                if (input.remaining() < BinaryCodec.MAGIC.length) {
+                    input.compact();
+                    return;
+                }
+                byte[] header = new byte[BinaryCodec.MAGIC.length];
+                input.get(header);
+                if (!Arrays.equals(header, BinaryCodec.MAGIC)) {
+                    System.out.println("En-tête de protocole non pris en charge reçu de " + channel);
+                    close();
+                    return;
+                }
+                negotiated = true;
+                send(new ByteBuffer[] {ByteBuffer.wrap(BinaryCodec.MAGIC.clone())});
+            }
+            while (input.remaining() >= 4) {
+                int length = input.getInt(input.position());
+                BinaryCodec.checkFrameLength(length);
+                if (input.remaining() < 4 + length) {
+                    needed = 4 + length;
+                    break;
+                }
+                input.position(input.position() + 4);
+                ByteBuffer body = input.slice();
+                body.limit(length);
+                input.position(input.position() + length);
+                dispatch(BinaryCodec.decodeRequest(body));
+            }
+        } catch (ProtocolException e) {
+            System.out.println("Trame invalide reçue de " + channel + " : " + e.getMessage());
+            close();
+            return;
+        }
+        input.compact();
+        if (needed > input.capacity() || (input.position() == 0 && input.capacity() > BUFFER_SIZE)) {
+            ByteBuffer resized = ByteBuffer.allocate(Math.max(needed, BUFFER_SIZE));
+            input.flip();
+            resized.put(input);
+            input = resized;
+        }
+    }
+
+    private void dispatch(Request request) {
+        if (!admitted || shutdown.isStopping()) {
+            closing = true;
+            interest(SelectionKey.OP_READ, false);
+            send(admission.busy(request.getId()));
+            return;
+        }
+        CompletableFuture<Response> response = handler.dispatch(request);
+        if (response.isDone()) {
+            send(response.join());
+            return;
+        }
+        pending++;
+        if (pending == MAX_PENDING) interest(SelectionKey.OP_READ, false);
+        response.thenAccept(r -> {
+            ByteBuffer[] frame = r instanceof ResponseStream ? null : encode(r);
+            loop.execute(() -> {
+                pending--;
+                if (frame == null) send(r);
+                else send(frame);
+                if (pending == MAX_PENDING / 2) resumeReading();
+            });
+        });
+    }
+
+    private static ByteBuffer[] encode(Response response) {
+        try {
+            return BinaryCodec.encodeBuffers(response);
+        } catch (IllegalArgumentException e) {
+            return BinaryCodec.encodeBuffers(new Response(response.getId(), Response.ERROR,
+                    "Réponse sans représentation binaire."));
+        }
+    }
+
+    private void resumeReading() {
+        if (!closed && !closing) interest(SelectionKey.OP_READ, true);
+    }
+
+    /**
+     * La méthode interest active ou désactive une opération surveillée par la boucle. Elle ne fait rien si la clé a
+     * été annulée par close(), ce qui arrive quand une réponse se termine après la fermeture de la connexion.
+     */
+    private void interest(int operation, boolean enabled) {
+        if (key == null || !key.isValid()) return;
+        key.interestOps(enabled ? key.interestOps() | operation : key.interestOps() & ~operation);
+    }
+
+    private void send(Response response) {
+        if (response instanceof ResponseStream) {
+            if (closed) return;
+            streams.add(((ResponseStream) response).getParts());
+            flush();
+        } else {
+            send(encode(response));
+        }
+    }
+
+    private void send(ByteBuffer[] frame) {
+        if (closed) return;
+        Collections.addAll(output, frame);
+        flush();
+    }
+
+    /**
+     * La méthode flush écrit les tampons en attente tant que le canal les accepte, en une seule écriture groupée
+     * lorsqu'il y en a plusieurs. S'il en reste, la boucle sera prévenue quand le canal pourra de nouveau écrire.
+     * Lorsque tout est écrit, la partie suivante de la première réponse en flux est encodée à son tour.
+     */
+    void flush() {
+        try {
+            while (!output.isEmpty() || nextPart()) {
+                if (output.size() == 1) {
+                    metrics.addBytesOut(channel.write(output.peek()));
+                } else {
+                    metrics.addBytesOut(channel.write(output.toArray(new ByteBuffer[0])));
+                }
+                while (!output.isEmpty() && !output.peek().hasRemaining()) output.poll();
+                if (!output.isEmpty()) {
+                    interest(SelectionKey.OP_WRITE, true);
+                    return;
+                }
+            }
+            interest(SelectionKey.OP_WRITE, false);
+            lastActivity = System.currentTimeMillis();
+            if (closing && pending == 0) close();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private boolean nextPart() {
+        Iterator<Response> parts = streams.peek();
+        if (parts == null) return false;
+        Collections.addAll(output, encode(parts.next()));
+        if (!parts.hasNext()) streams.poll();
+        return true;
+    }
+
+    /**
+     * La méthode isIdle indique si la connexion n'a rien reçu ni envoyé depuis plus longtemps que le délai donné,
+     * sans réponse en attente. Une connexion refusée n'attend sa requête que REFUSAL_TIMEOUT millisecondes au plus.
+     */
+    boolean isIdle(long now, long idleTimeout) {
+        if (!admitted) idleTimeout = Math.min(idleTimeout, ClientHandler.REFUSAL_TIMEOUT);
+        return pending == 0 && output.isEmpty() && streams.isEmpty() && now - lastActivity > idleTimeout;
+    }
+
+    /**
+     * La méthode drain cesse de lire la connexion et la ferme dès que les réponses en attente sont envoyées.
+     */
+    void drain() {
+        if (closed) return;
+        closing = true;
+        interest(SelectionKey.OP_READ, false);
+        if (pending == 0 && output.isEmpty() && streams.isEmpty()) close();
+    }
+
+    void close() {
+        if (closed) return;
+        closed = true;
+        if (admitted) {
+            metrics.connectionClosed();
+            admission.release();
+            shutdown.removeConnection(drain);
+        }
+        if (key != null) key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // la connexion est abandonnée de toute façon
+        }
+    }
+}
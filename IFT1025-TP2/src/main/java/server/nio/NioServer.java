@@ -0,0 +1,107 @@
+package server.nio;
+
+import server.AdmissionControl;
+import server.EventHandler;
+import server.ServerConfig;
+import server.ServerContext;
+import server.ServerShutdown;
+
+import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * La classe NioServer implémente l'interface Runnable. Elle définit un serveur dont les connexions sont des canaux non
+ * bloquants répartis entre quelques boucles d'événements : chaque boucle surveille ses connexions avec un Selector, lit
+ * les trames binaires reçues et écrit les réponses sans jamais attendre le réseau. Une connexion inactive n'occupe donc
+ * que sa mémoire, et aucun thread.
+ * Les requêtes décodées sont confiées au registre des commandes par la boucle elle-même : les commandes rapides y sont
+ * traitées directement, et celles qui attendent (par exemple l'inscription, qui attend le journal) s'exécutent sur
+ * l'exécuteur des gestionnaires, dont la taille est fixée par l'option "--threads". Les gestionnaires d'événements
+ * ajoutés par addEventHandler sont appelés par la boucle et ne doivent donc pas attendre.
+ * Seul le format binaire est pris en charge : une connexion qui commence par l'en-tête de la sérialisation Java est
+ * fermée, et ces clients doivent utiliser Server ou ServerMultithreading.
+ */
+public class NioServer implements Runnable {
+    private final ServerSocketChannel server;
+    private final ServerContext context;
+    private final EventLoop[] loops;
+    private int next;
+
+    /**
+     * La méthode NioServer est le constructeur de sa classe. Elle crée les boucles d'événements, sans les démarrer.
+     * Une connexion n'occupant pas de thread, le nombre de connexions servies en même temps n'est pas limité, sauf
+     * avec l'option "--max-connections".
+     * @param server le canal sur lequel les connexions sont acceptées.
+     * @param context l'état partagé par toutes les connexions ; sa configuration fixe le nombre de boucles
+     *                d'événements.
+     * @throws IOException si un Selector ne peut pas être ouvert.
+     */
+    public NioServer(ServerSocketChannel server, ServerContext context) throws IOException {
+        ServerConfig config = context.getConfig();
+        this.server = server;
+        this.context = context;
+        if (!config.hasMaxConnections()) context.getAdmission().setMaxConnections(AdmissionControl.UNLIMITED);
+        this.loops = new EventLoop[config.getEventLoops()];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(context);
+        }
+        context.getShutdown().addListener(server);
+    }
+
+    /**
+     * La méthode addEventHandler ajoute un gestionnaire d'événement passé en paramètre à la liste des gestionnaires.
+     * Elle peut être appelée pendant que le serveur traite des connexions.
+     * @param h le gestionnaire d'evenement a ajouter.
+     */
+    public void addEventHandler(EventHandler h) {
+        this.context.getHandlers().add(h);
+    }
+
+    /**
+     * La méthode run démarre les boucles d'événements, puis accepte en boucle les connexions entrantes et confie
+     * chacune d'elles, à tour de rôle, à une boucle. Une connexion qui doit attendre une place auprès du contrôle
+     * d'admission n'est confiée à sa boucle qu'une fois admise ou refusée, sans bloquer l'acceptation des suivantes.
+     * À l'arrêt du serveur, la méthode attend qu'il soit terminé, puis arrête les boucles et retourne.
+     */
+    public void run() {
+        ThreadFactory factory = new NamedThreadFactory("boucle-");
+        for (EventLoop loop : loops) {
+            factory.newThread(loop).start();
+        }
+        ServerShutdown shutdown = context.getShutdown();
+        while (!shutdown.isStopping()) {
+            try {
+                SocketChannel client = server.accept();
+                EventLoop loop = loops[next];
+                next = (next + 1) % loops.length;
+                context.getAdmission().admit().thenAccept(admitted -> loop.register(client, admitted));
+            } catch (IOException e) {
+                if (!shutdown.isStopping()) e.printStackTrace();
+            }
+        }
+        shutdown.awaitStop();
+        for (EventLoop loop : loops) {
+            loop.stop();
+        }
+    }
+
+    /**
+     * La classe NamedThreadFactory nomme les threads du serveur afin de les reconnaître dans les traces d'exécution.
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, prefix + count.incrementAndGet());
+        }
+    }
+}
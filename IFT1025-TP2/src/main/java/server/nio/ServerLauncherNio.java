@@ -0,0 +1,40 @@
+package server.nio;
+
+import server.ServerConfig;
+import server.ServerContext;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+
+/**
+ * La classe ServerLauncherNio lance un serveur à boucles d'événements non bloquantes.
+ */
+public class ServerLauncherNio {
+    /**
+     * Port utilisé pour lancer le serveur.
+     */
+    public final static int PORT = ServerConfig.DEFAULT_PORT;
+
+    /**
+     * La méthode main est le point d'entrée du programme. Elle ouvre le canal d'écoute, charge le catalogue des cours
+     * et ouvre le journal des inscriptions, puis lance un serveur NIO dont le nombre de boucles d'événements est fixé
+     * par l'option "--loops" et le nombre de travailleurs par l'option "--threads". Le serveur est arrêté proprement à
+     * la fin du processus ou sur la commande d'arrêt.
+     * @param args les options en ligne de commande, par exemple "--port 1337 --loops 2 --threads 16".
+     */
+    public static void main(String[] args) {
+        try {
+            ServerConfig config = ServerConfig.parse(args);
+            ServerSocketChannel server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(config.getPort()), config.getBacklog());
+            ServerContext context = new ServerContext(config);
+            context.getShutdown().addHook();
+            NioServer nioServer = new NioServer(server, context);
+            System.out.println("Server is running with " + config.getEventLoops() + " event loops and "
+                    + config.getThreads() + " workers...");
+            nioServer.run();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
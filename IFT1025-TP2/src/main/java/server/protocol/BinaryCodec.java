@@ -0,0 +1,464 @@
+package server.protocol;
+
+import server.models.Course;
+import server.models.CourseList;
+import server.models.RegistrationForm;
+
+import java.io.Serializable;
+import java.net.ProtocolException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * La classe BinaryCodec encode les requêtes et les réponses dans un format binaire compact, sans descripteur de
+ * classe ni réflexion. Chaque trame commence par sa longueur (entier de quatre octets), suivie du type de message,
+ * de l'identifiant, de la commande ou du statut, puis de l'objet joint précédé d'une étiquette de type. Les chaînes
+ * sont écrites en UTF-8.
+ */
+public final class BinaryCodec {
+    /**
+     * Octets envoyés par un client binaire à l'ouverture de la connexion, puis renvoyés par le serveur pour confirmer
+     * le format. Le premier octet ne peut pas être confondu avec l'en-tête de la sérialisation Java.
+     */
+    public static final byte[] MAGIC = {'I', 'F', 'T', 1};
+    /**
+     * Taille maximale acceptée pour le contenu d'une trame.
+     */
+    public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    static final byte REQUEST = 1;
+    static final byte RESPONSE = 2;
+
+    static final byte NULL = 0;
+    static final byte STRING = 1;
+    static final byte COURSE = 2;
+    static final byte COURSE_LIST = 3;
+    static final byte REGISTRATION_FORM = 4;
+    static final byte VERSIONED_COURSE_LIST = 5;
+    static final byte REGISTRATION_FORM_LIST = 6;
+    static final byte STRING_LIST = 7;
+
+    private BinaryCodec() {
+    }
+
+    /**
+     * La méthode encode produit la trame d'une requête, longueur comprise.
+     * @param request la requête à encoder.
+     * @return les octets de la trame.
+     * @throws IllegalArgumentException si l'objet joint n'a pas de représentation binaire.
+     */
+    public static byte[] encode(Request request) {
+        Encoder encoder = new Encoder();
+        encoder.putByte(REQUEST);
+        encoder.putLong(request.getId());
+        encoder.putString(request.getLine());
+        encoder.putPayload(request.getPayload());
+        return encoder.toFrame();
+    }
+
+    /**
+     * La méthode encode produit la trame d'une réponse, longueur comprise.
+     * @param response la réponse à encoder.
+     * @return les octets de la trame.
+     * @throws IllegalArgumentException si l'objet joint n'a pas de représentation binaire.
+     */
+    public static byte[] encode(Response response) {
+        EncodedPayload encoded = response.getEncoded();
+        if (encoded != null) {
+            byte[] header = encodeHeader(response.getId(), encoded.getBinary().length);
+            byte[] frame = Arrays.copyOf(header, header.length + encoded.getBinary().length);
+            System.arraycopy(encoded.getBinary(), 0, frame, header.length, encoded.getBinary().length);
+            return frame;
+        }
+        Encoder encoder = new Encoder();
+        encoder.putByte(RESPONSE);
+        encoder.putLong(response.getId());
+        encoder.putString(response.getStatus());
+        encoder.putPayload(response.getPayload());
+        return encoder.toFrame();
+    }
+
+    /**
+     * La méthode encodeBuffers produit la trame d'une réponse sous forme de tampons à écrire à la suite. Pour une
+     * réponse construite par EncodedPayload, seul l'en-tête est encodé ; le second tampon enveloppe les octets
+     * partagés, sans les copier, et ne doit servir qu'à être écrit.
+     * @param response la réponse à encoder.
+     * @return les tampons de la trame, longueur comprise.
+     * @throws IllegalArgumentException si l'objet joint n'a pas de représentation binaire.
+     */
+    public static ByteBuffer[] encodeBuffers(Response response) {
+        EncodedPayload encoded = response.getEncoded();
+        if (encoded == null) return new ByteBuffer[] {ByteBuffer.wrap(encode(response))};
+        byte[] binary = encoded.getBinary();
+        ByteBuffer header = ByteBuffer.wrap(encodeHeader(response.getId(), binary.length));
+        return new ByteBuffer[] {header, ByteBuffer.wrap(binary)};
+    }
+
+    /**
+     * La méthode encodeTail encode le statut et l'objet joint d'une réponse, c'est-à-dire tout ce qui suit son
+     * identifiant. Le statut étant la première chaîne de la trame, les références aux chaînes déjà écrites restent
+     * valides quel que soit l'identifiant placé devant.
+     */
+    static byte[] encodeTail(String status, Serializable payload) {
+        Encoder encoder = new Encoder();
+        encoder.putString(status);
+        encoder.putPayload(payload);
+        return encoder.toTail();
+    }
+
+    /**
+     * La méthode encodeHeader encode la longueur, le type et l'identifiant d'une réponse dont la suite, déjà encodée,
+     * compte le nombre d'octets donné.
+     */
+    private static byte[] encodeHeader(long id, int tailLength) {
+        long zigzag = (id << 1) ^ (id >> 63);
+        int idLength = 1;
+        for (long rest = zigzag >>> 7; rest != 0; rest >>>= 7) idLength++;
+        int length = 1 + idLength + tailLength;
+        byte[] header = new byte[5 + idLength];
+        header[0] = (byte) (length >>> 24);
+        header[1] = (byte) (length >>> 16);
+        header[2] = (byte) (length >>> 8);
+        header[3] = (byte) length;
+        header[4] = RESPONSE;
+        int position = 5;
+        while ((zigzag & ~0x7FL) != 0) {
+            header[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        header[position] = (byte) zigzag;
+        return header;
+    }
+
+    /**
+     * La méthode decodeRequest lit une requête dans le contenu d'une trame, sans sa longueur.
+     * @param body le contenu de la trame.
+     * @return la requête décodée.
+     * @throws ProtocolException si la trame n'est pas une requête valide.
+     */
+    public static Request decodeRequest(ByteBuffer body) throws ProtocolException {
+        try {
+            Decoder decoder = new Decoder(body);
+            decoder.expectType(REQUEST);
+            long id = decoder.getLong();
+            String line = decoder.getString();
+            return new Request(id, line, decoder.getPayload());
+        } catch (BufferUnderflowException e) {
+            throw new ProtocolException("Requête tronquée.");
+        }
+    }
+
+    /**
+     * La méthode decodeResponse lit une réponse dans le contenu d'une trame, sans sa longueur.
+     * @param body le contenu de la trame.
+     * @return la réponse décodée.
+     * @throws ProtocolException si la trame n'est pas une réponse valide.
+     */
+    public static Response decodeResponse(ByteBuffer body) throws ProtocolException {
+        try {
+            Decoder decoder = new Decoder(body);
+            decoder.expectType(RESPONSE);
+            long id = decoder.getLong();
+            String status = decoder.getString();
+            return new Response(id, status, decoder.getPayload());
+        } catch (BufferUnderflowException e) {
+            throw new ProtocolException("Réponse tronquée.");
+        }
+    }
+
+    /**
+     * La méthode checkFrameLength vérifie la longueur annoncée d'une trame avant d'allouer de quoi la lire.
+     * @param length la longueur annoncée.
+     * @throws ProtocolException si la longueur est négative ou dépasse MAX_FRAME_LENGTH.
+     */
+    public static void checkFrameLength(int length) throws ProtocolException {
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new ProtocolException("Longueur de trame invalide : " + length);
+        }
+    }
+
+    /**
+     * La classe Encoder accumule les octets d'une trame dans un tableau qui grandit au besoin. Les quatre premiers
+     * octets sont réservés pour la longueur, écrite à la fin. Les entiers sont écrits en longueur variable (sept bits
+     * par octet) et une chaîne déjà présente dans la trame est remplacée par son numéro, ce qui évite par exemple de
+     * répéter la session de chaque cours d'une liste.
+     */
+    static final class Encoder {
+        private byte[] bytes = new byte[256];
+        private int position = 4;
+        private final HashMap<String, Integer> strings = new HashMap<>();
+
+        void putByte(byte b) {
+            ensure(1);
+            bytes[position++] = b;
+        }
+
+        void putVarInt(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                bytes[position++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[position++] = (byte) v;
+        }
+
+        void putLong(long v) {
+            ensure(10);
+            long zigzag = (v << 1) ^ (v >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                bytes[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            bytes[position++] = (byte) zigzag;
+        }
+
+        /**
+         * La méthode putString écrit une chaîne. L'en-tête vaut 0 pour null, 2 * numéro + 1 pour une chaîne déjà
+         * écrite dans la trame et 2 * (longueur + 1) pour une nouvelle chaîne, suivie de ses octets UTF-8.
+         * @param s la chaîne à écrire.
+         */
+        void putString(String s) {
+            if (s == null) {
+                putVarInt(0);
+                return;
+            }
+            Integer index = strings.get(s);
+            if (index != null) {
+                putVarInt(2 * index + 1);
+                return;
+            }
+            strings.put(s, strings.size());
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            putVarInt(2 * (utf8.length + 1));
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, position, utf8.length);
+            position += utf8.length;
+        }
+
+        void putCourse(Course course) {
+            putString(course.getName());
+            putString(course.getCode());
+            putString(course.getSession());
+        }
+
+        void putPayload(Serializable payload) {
+            if (payload == null) {
+                putByte(NULL);
+            } else if (payload instanceof String) {
+                putByte(STRING);
+                putString((String) payload);
+            } else if (payload instanceof Course) {
+                putByte(COURSE);
+                putCourse((Course) payload);
+            } else if (payload instanceof List && isListOf((List<?>) payload, RegistrationForm.class)) {
+                List<?> forms = (List<?>) payload;
+                putByte(REGISTRATION_FORM_LIST);
+                putVarInt(forms.size());
+                for (Object form : forms) putForm((RegistrationForm) form);
+            } else if (payload instanceof List && isListOf((List<?>) payload, String.class)) {
+                List<?> strings = (List<?>) payload;
+                putByte(STRING_LIST);
+                putVarInt(strings.size());
+                for (Object string : strings) putString((String) string);
+            } else if (payload instanceof List) {
+                List<?> list = (List<?>) payload;
+                if (payload instanceof CourseList) {
+                    CourseList courses = (CourseList) payload;
+                    putByte(VERSIONED_COURSE_LIST);
+                    putLong(courses.getVersion());
+                    putVarInt(courses.getOffset());
+                    putVarInt(courses.getTotal());
+                } else {
+                    putByte(COURSE_LIST);
+                }
+                putVarInt(list.size());
+                for (Object course : list) {
+                    if (!(course instanceof Course)) {
+                        throw new IllegalArgumentException("Liste non prise en charge : " + course);
+                    }
+                    putCourse((Course) course);
+                }
+            } else if (payload instanceof RegistrationForm) {
+                putByte(REGISTRATION_FORM);
+                putForm((RegistrationForm) payload);
+            } else {
+                throw new IllegalArgumentException("Objet sans représentation binaire : " + payload.getClass());
+            }
+        }
+
+        void putForm(RegistrationForm form) {
+            putString(form.getPrenom());
+            putString(form.getNom());
+            putString(form.getEmail());
+            putString(form.getMatricule());
+            if (form.getCourse() == null) {
+                putByte(NULL);
+            } else {
+                putByte(COURSE);
+                putCourse(form.getCourse());
+            }
+        }
+
+        /**
+         * La méthode isListOf indique si une liste non vide ne contient que des éléments du type donné. Une liste
+         * vide est encodée comme une liste de cours.
+         */
+        private static boolean isListOf(List<?> list, Class<?> type) {
+            if (list.isEmpty() || list instanceof CourseList) return false;
+            for (Object element : list) {
+                if (!type.isInstance(element)) return false;
+            }
+            return true;
+        }
+
+        private void ensure(int n) {
+            if (position + n > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + n));
+            }
+        }
+
+        byte[] toTail() {
+            return Arrays.copyOfRange(bytes, 4, position);
+        }
+
+        byte[] toFrame() {
+            int length = position - 4;
+            bytes[0] = (byte) (length >>> 24);
+            bytes[1] = (byte) (length >>> 16);
+            bytes[2] = (byte) (length >>> 8);
+            bytes[3] = (byte) length;
+            return position == bytes.length ? bytes : Arrays.copyOf(bytes, position);
+        }
+    }
+
+    /**
+     * La classe Decoder lit le contenu d'une trame produite par Encoder et garde la table des chaînes déjà lues.
+     */
+    static final class Decoder {
+        private final ByteBuffer body;
+        private final ArrayList<String> strings = new ArrayList<>();
+
+        Decoder(ByteBuffer body) {
+            this.body = body;
+        }
+
+        void expectType(byte type) throws ProtocolException {
+            byte actual = body.get();
+            if (actual != type) throw new ProtocolException("Type de message inattendu : " + actual);
+        }
+
+        int getVarInt() throws ProtocolException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = body.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+            throw new ProtocolException("Entier trop long.");
+        }
+
+        long getLong() throws ProtocolException {
+            long zigzag = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                byte b = body.get();
+                zigzag |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+            throw new ProtocolException("Entier trop long.");
+        }
+
+        String getString() throws ProtocolException {
+            int header = getVarInt();
+            if (header == 0) return null;
+            if ((header & 1) == 1) {
+                int index = header >>> 1;
+                if (index >= strings.size()) throw new ProtocolException("Référence de chaîne invalide.");
+                return strings.get(index);
+            }
+            int length = (header >>> 1) - 1;
+            if (length > body.remaining()) throw new ProtocolException("Chaîne de longueur invalide.");
+            String value;
+            if (body.hasArray()) {
+                value = new String(body.array(), body.arrayOffset() + body.position(), length, StandardCharsets.UTF_8);
+                body.position(body.position() + length);
+            } else {
+                byte[] utf8 = new byte[length];
+                body.get(utf8);
+                value = new String(utf8, StandardCharsets.UTF_8);
+            }
+            strings.add(value);
+            return value;
+        }
+
+        Course getCourse() throws ProtocolException {
+            String name = getString();
+            String code = getString();
+            String session = getString();
+            return new Course(name, code, session);
+        }
+
+        ArrayList<Course> getCourses() throws ProtocolException {
+            int size = getSize();
+            ArrayList<Course> courses = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) courses.add(getCourse());
+            return courses;
+        }
+
+        /**
+         * La méthode getSize lit la taille d'une liste ; chaque élément occupant au moins un octet, une taille plus
+         * grande que le reste de la trame est refusée avant toute allocation.
+         */
+        int getSize() throws ProtocolException {
+            int size = getVarInt();
+            if (size < 0 || size > body.remaining()) throw new ProtocolException("Liste de taille invalide.");
+            return size;
+        }
+
+        Serializable getPayload() throws ProtocolException {
+            byte tag = body.get();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return getString();
+                case COURSE:
+                    return getCourse();
+                case COURSE_LIST:
+                    return getCourses();
+                case VERSIONED_COURSE_LIST:
+                    long version = getLong();
+                    int offset = getVarInt();
+                    int total = getVarInt();
+                    return new CourseList(getCourses(), version, offset, total);
+                case REGISTRATION_FORM:
+                    return getForm();
+                case REGISTRATION_FORM_LIST:
+                    int forms = getSize();
+                    ArrayList<RegistrationForm> list = new ArrayList<>(forms);
+                    for (int i = 0; i < forms; i++) list.add(getForm());
+                    return list;
+                case STRING_LIST:
+                    int strings = getSize();
+                    ArrayList<String> results = new ArrayList<>(strings);
+                    for (int i = 0; i < strings; i++) results.add(getString());
+                    return results;
+                default:
+                    throw new ProtocolException("Type d'objet inconnu : " + tag);
+            }
+        }
+
+        RegistrationForm getForm() throws ProtocolException {
+            String prenom = getString();
+            String nom = getString();
+            String email = getString();
+            String matricule = getString();
+            Course course = body.get() == NULL ? null : getCourse();
+            return new RegistrationForm(prenom, nom, email, matricule, course);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package server.protocol;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * La classe BinaryTransport échange les messages dans le format de BinaryCodec : chaque message est une trame
+ * précédée de sa longueur sur quatre octets.
+ */
+public class BinaryTransport extends Transport {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+    private byte[] frame = new byte[1024];
+
+    BinaryTransport(Socket socket, InputStream in, OutputStream out) {
+        this.socket = socket;
+        this.in = new DataInputStream(in);
+        this.out = out;
+    }
+
+    @Override
+    public Request readRequest() throws IOException {
+        ByteBuffer body = readFrame();
+        return body == null ? null : BinaryCodec.decodeRequest(body);
+    }
+
+    @Override
+    public void writeResponse(Response response) throws IOException {
+        for (ByteBuffer buffer : BinaryCodec.encodeBuffers(response)) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        out.flush();
+    }
+
+    @Override
+    public void writeRequest(Request request) throws IOException {
+        out.write(BinaryCodec.encode(request));
+        out.flush();
+    }
+
+    @Override
+    public Response readResponse() throws IOException {
+        ByteBuffer body = readFrame();
+        return body == null ? null : BinaryCodec.decodeResponse(body);
+    }
+
+    @Override
+    public WireFormat getFormat() {
+        return WireFormat.BINARY;
+    }
+
+    /**
+     * La méthode readFrame lit la prochaine trame. Le tampon de lecture est réutilisé d'une trame à l'autre.
+     * @return le contenu de la trame, ou null si la connexion a été fermée entre deux trames.
+     * @throws IOException si la trame est tronquée ou trop grande.
+     */
+    private ByteBuffer readFrame() throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        BinaryCodec.checkFrameLength(length);
+        if (length > frame.length) frame = new byte[Math.max(length, frame.length * 2)];
+        in.readFully(frame, 0, length);
+        return ByteBuffer.wrap(frame, 0, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
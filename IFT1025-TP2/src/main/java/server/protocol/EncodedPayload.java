@@ -0,0 +1,50 @@
+package server.protocol;
+
+import java.io.Serializable;
+
+/**
+ * La classe EncodedPayload garde le statut et l'objet joint d'une réponse qui est envoyée souvent à l'identique,
+ * avec leur encodage binaire calculé une seule fois. Seul l'identifiant change d'une réponse à l'autre : le
+ * transport binaire écrit un court en-tête propre à la requête, puis les octets partagés tels quels, sans rien
+ * encoder. Les autres transports utilisent l'objet joint comme pour une réponse ordinaire.
+ * L'objet joint est partagé par toutes les réponses construites à partir de cette instance et ne doit pas être
+ * modifié.
+ */
+public final class EncodedPayload {
+    private final String status;
+    private final Serializable payload;
+    private final byte[] binary;
+
+    /**
+     * La méthode EncodedPayload est le constructeur de sa classe. Elle encode immédiatement le statut et l'objet joint.
+     * @param status le statut des réponses.
+     * @param payload l'objet joint des réponses.
+     * @throws IllegalArgumentException si l'objet joint n'a pas de représentation binaire.
+     */
+    public EncodedPayload(String status, Serializable payload) {
+        this.status = status;
+        this.payload = payload;
+        this.binary = BinaryCodec.encodeTail(status, payload);
+    }
+
+    /**
+     * La méthode toResponse construit la réponse à une requête.
+     * @param id l'identifiant de la requête à laquelle on répond.
+     * @return la réponse, qui partage l'encodage de cette instance.
+     */
+    public Response toResponse(long id) {
+        return new Response(id, status, payload, this);
+    }
+
+    /**
+     * La méthode size retourne la taille de l'encodage partagé, sans l'en-tête propre à chaque réponse.
+     * @return le nombre d'octets.
+     */
+    public int size() {
+        return binary.length;
+    }
+
+    byte[] getBinary() {
+        return binary;
+    }
+}
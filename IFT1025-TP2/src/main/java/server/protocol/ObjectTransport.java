@@ -0,0 +1,113 @@
+package server.protocol;
+
+import server.ClientHandler;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.Socket;
+
+/**
+ * La classe ObjectTransport échange les messages par sérialisation Java. Côté serveur, elle accepte aussi les
+ * commandes des anciens clients, qui envoient une simple chaîne de caractères (suivie du formulaire pour une
+ * inscription) et attendent le résultat brut plutôt qu'un objet Response.
+ */
+public class ObjectTransport extends Transport {
+    private final Socket socket;
+    private final ObjectOutputStream objectOutputStream;
+    private final ObjectInputStream objectInputStream;
+
+    /**
+     * La méthode ObjectTransport est le constructeur de sa classe. Elle écrit l'en-tête de sérialisation avant de lire
+     * celui de l'autre extrémité.
+     * @param socket le socket de la connexion.
+     * @param in le flux d'entrée de la connexion.
+     * @param out le flux de sortie de la connexion.
+     * @throws IOException si une erreur survient lors de l'échange des en-têtes.
+     */
+    ObjectTransport(Socket socket, InputStream in, OutputStream out) throws IOException {
+        this.socket = socket;
+        this.objectOutputStream = new ObjectOutputStream(out);
+        this.objectOutputStream.flush();
+        this.objectInputStream = new ObjectInputStream(in);
+    }
+
+    @Override
+    public Request readRequest() throws IOException {
+        Object message = read();
+        if (message == null || message instanceof Request) return (Request) message;
+
+        String line = message.toString();
+        Serializable payload = null;
+        if (line.equals(ClientHandler.REGISTER_COMMAND) || line.startsWith(ClientHandler.REGISTER_COMMAND + " ")) {
+            payload = (Serializable) read();
+        }
+        return new Request(Request.LEGACY_ID, line, payload);
+    }
+
+    /**
+     * La méthode writeResponse envoie une réponse au client. Un ancien client ne reçoit que le résultat d'une commande
+     * réussie, comme avant l'introduction des objets Response.
+     * @param response la réponse à envoyer.
+     * @throws IOException si une erreur survient lors de l'écriture.
+     */
+    @Override
+    public void writeResponse(Response response) throws IOException {
+        if (response.getId() != Request.LEGACY_ID) {
+            write(response);
+        } else if (response.isOk() && response.getPayload() != null) {
+            write(response.getPayload());
+        }
+    }
+
+    @Override
+    public void writeRequest(Request request) throws IOException {
+        write(request);
+    }
+
+    @Override
+    public Response readResponse() throws IOException {
+        return (Response) read();
+    }
+
+    @Override
+    public WireFormat getFormat() {
+        return WireFormat.SERIALIZATION;
+    }
+
+    /**
+     * La méthode write écrit un objet dans le flux de sortie. Le flux est ensuite réinitialisé pour qu'il ne garde pas
+     * de référence vers les objets déjà envoyés pendant toute la durée de la connexion.
+     * @param object l'objet à envoyer.
+     * @throws IOException si une erreur se produit lors de l'écriture.
+     */
+    private void write(Object object) throws IOException {
+        objectOutputStream.writeObject(object);
+        objectOutputStream.reset();
+        objectOutputStream.flush();
+    }
+
+    private Object read() throws IOException {
+        try {
+            return objectInputStream.readObject();
+        } catch (EOFException e) {
+            return null;
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Objet de classe inconnue reçu.", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            objectOutputStream.close();
+            objectInputStream.close();
+        } finally {
+            socket.close();
+        }
+    }
+}
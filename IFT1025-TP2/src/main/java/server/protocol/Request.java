@@ -0,0 +1,57 @@
+package server.protocol;
+
+import java.io.Serializable;
+
+/**
+ * La classe Request représente une commande envoyée par un client sur une connexion persistante. L'identifiant est
+ * choisi par le client et recopié dans la réponse, ce qui lui permet d'envoyer plusieurs requêtes à la suite et
+ * d'associer chaque réponse à sa requête.
+ */
+public class Request implements Serializable {
+    private static final long serialVersionUID = 1L;
+    /**
+     * Identifiant attribué aux commandes des anciens clients, qui envoient une simple chaîne de caractères et
+     * n'attendent pas d'objet Response.
+     */
+    public final static long LEGACY_ID = -1;
+    private final long id;
+    private final String line;
+    private final Serializable payload;
+
+    /**
+     * La méthode Request est le constructeur de sa classe.
+     * @param id l'identifiant de la requête, choisi par le client.
+     * @param line la ligne de commande, par exemple "CHARGER Automne".
+     * @param payload l'objet joint à la commande (par exemple un RegistrationForm), ou null.
+     */
+    public Request(long id, String line, Serializable payload) {
+        this.id = id;
+        this.line = line;
+        this.payload = payload;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    public Serializable getPayload() {
+        return payload;
+    }
+
+    /**
+     * La méthode isLegacy indique si la requête provient d'un ancien client.
+     * @return true si la requête n'a pas d'identifiant, false sinon.
+     */
+    public boolean isLegacy() {
+        return id == LEGACY_ID;
+    }
+
+    @Override
+    public String toString() {
+        return "Request{" + "id=" + id + ", line=" + line + '}';
+    }
+}
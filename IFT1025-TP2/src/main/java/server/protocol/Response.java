@@ -0,0 +1,96 @@
+package server.protocol;
+
+import java.io.Serializable;
+
+/**
+ * La classe Response représente la réponse du serveur à une Request. Elle reprend l'identifiant de la requête et
+ * indique si la commande a réussi.
+ */
+public class Response implements Serializable {
+    private static final long serialVersionUID = 1L;
+    /**
+     * Statut d'une commande traitée avec succès.
+     */
+    public final static String OK = "OK";
+    /**
+     * Statut d'une commande qui n'a pas pu être traitée.
+     */
+    public final static String ERROR = "ERREUR";
+    /**
+     * Statut d'une commande dont le résultat n'a pas changé depuis la version que le client a indiquée ; la réponse
+     * ne contient alors aucun résultat.
+     */
+    public final static String NOT_MODIFIED = "NON_MODIFIE";
+    /**
+     * Statut d'une partie d'un résultat envoyé en plusieurs trames portant le même identifiant ; la dernière partie a
+     * le statut OK.
+     */
+    public final static String PARTIAL = "SUITE";
+    /**
+     * Statut d'une requête refusée parce que le serveur est saturé ; la réponse contient le délai conseillé, en
+     * millisecondes, avant de réessayer, et le serveur ferme ensuite la connexion.
+     */
+    public final static String BUSY = "OCCUPE";
+    private final long id;
+    private final String status;
+    private final Serializable payload;
+    private final transient EncodedPayload encoded;
+
+    /**
+     * La méthode Response est le constructeur de sa classe.
+     * @param id l'identifiant de la requête à laquelle on répond.
+     * @param status le statut de la réponse.
+     * @param payload le résultat de la commande, ou un message d'erreur, ou null.
+     */
+    public Response(long id, String status, Serializable payload) {
+        this(id, status, payload, null);
+    }
+
+    Response(long id, String status, Serializable payload, EncodedPayload encoded) {
+        this.id = id;
+        this.status = status;
+        this.payload = payload;
+        this.encoded = encoded;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Serializable getPayload() {
+        return payload;
+    }
+
+    /**
+     * La méthode getEncoded retourne l'encodage binaire déjà calculé du statut et de l'objet joint.
+     * @return l'encodage partagé, ou null si la réponse doit être encodée normalement.
+     */
+    EncodedPayload getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * La méthode isOk indique si la commande a réussi.
+     * @return true si le statut est OK, false sinon.
+     */
+    public boolean isOk() {
+        return OK.equals(status);
+    }
+
+    /**
+     * La méthode isError indique si la commande a échoué.
+     * @return true si le statut est ERREUR, false sinon.
+     */
+    public boolean isError() {
+        return ERROR.equals(status);
+    }
+
+    @Override
+    public String toString() {
+        return "Response{" + "id=" + id + ", status=" + status + ", payload=" + payload + '}';
+    }
+}
@@ -0,0 +1,33 @@
+package server.protocol;
+
+import java.util.Iterator;
+
+/**
+ * La classe ResponseStream représente un résultat envoyé en plusieurs trames, qui portent toutes l'identifiant de la
+ * requête. Les parties sont produites une à une par un itérateur au moment de leur écriture : le transport n'en
+ * garde qu'une seule en mémoire à la fois, et le client reçoit la première sans attendre que les suivantes soient
+ * prêtes. Toutes les parties ont le statut PARTIAL, sauf la dernière qui a le statut OK.
+ * Une ResponseStream n'est jamais envoyée telle quelle : celui qui écrit les réponses envoie ses parties à la suite.
+ */
+public class ResponseStream extends Response {
+    private static final long serialVersionUID = 1L;
+    private final transient Iterator<Response> parts;
+
+    /**
+     * La méthode ResponseStream est le constructeur de sa classe.
+     * @param id l'identifiant de la requête à laquelle on répond.
+     * @param parts les parties du résultat, dans l'ordre d'envoi.
+     */
+    public ResponseStream(long id, Iterator<Response> parts) {
+        super(id, OK, null);
+        this.parts = parts;
+    }
+
+    /**
+     * La méthode getParts retourne les parties qui restent à envoyer. L'itérateur ne peut être parcouru qu'une fois.
+     * @return les parties du résultat.
+     */
+    public Iterator<Response> getParts() {
+        return parts;
+    }
+}
@@ -0,0 +1,115 @@
+package server.protocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * La classe Transport lit et écrit les messages échangés sur une connexion, quel que soit leur format. Le format est
+ * négocié à l'ouverture : un client binaire commence par envoyer BinaryCodec.MAGIC, auquel le serveur répond par les
+ * mêmes octets ; tout flux commençant par l'en-tête de la sérialisation Java est traité comme un client
+ * ObjectOutputStream, ce qui permet aux anciens clients de continuer à fonctionner.
+ */
+public abstract class Transport implements Closeable {
+    private static final byte SERIALIZATION_MAGIC_0 = (byte) 0xAC;
+    private static final byte SERIALIZATION_MAGIC_1 = (byte) 0xED;
+
+    /**
+     * La méthode accept détermine le format utilisé par un client qui vient de se connecter et crée le transport
+     * correspondant.
+     * @param socket le socket du client.
+     * @return le transport à utiliser côté serveur.
+     * @throws IOException si le client ferme la connexion ou envoie un en-tête inconnu.
+     */
+    public static Transport accept(Socket socket) throws IOException {
+        return accept(socket, socket.getInputStream(), socket.getOutputStream());
+    }
+
+    /**
+     * La méthode accept détermine le format utilisé par un client qui vient de se connecter et crée le transport
+     * correspondant, en lisant et en écrivant dans les flux donnés plutôt que directement dans ceux du socket.
+     * @param socket le socket du client, fermé avec le transport.
+     * @param input le flux d'entrée du socket, éventuellement enveloppé.
+     * @param output le flux de sortie du socket, éventuellement enveloppé.
+     * @return le transport à utiliser côté serveur.
+     * @throws IOException si le client ferme la connexion ou envoie un en-tête inconnu.
+     */
+    public static Transport accept(Socket socket, InputStream input, OutputStream output) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(input);
+        OutputStream out = new BufferedOutputStream(output);
+        byte[] header = new byte[BinaryCodec.MAGIC.length];
+        in.mark(header.length);
+        int n = in.readNBytes(header, 0, header.length);
+        if (n >= 2 && header[0] == SERIALIZATION_MAGIC_0 && header[1] == SERIALIZATION_MAGIC_1) {
+            in.reset();
+            return new ObjectTransport(socket, in, out);
+        }
+        if (n == header.length && Arrays.equals(header, BinaryCodec.MAGIC)) {
+            out.write(BinaryCodec.MAGIC);
+            out.flush();
+            return new BinaryTransport(socket, in, out);
+        }
+        throw new IOException("En-tête de protocole inconnu reçu de " + socket);
+    }
+
+    /**
+     * La méthode connect crée le transport côté client dans le format demandé.
+     * @param socket le socket connecté au serveur.
+     * @param format le format d'échange à utiliser.
+     * @return le transport à utiliser côté client.
+     * @throws IOException si le serveur ne confirme pas le format demandé.
+     */
+    public static Transport connect(Socket socket, WireFormat format) throws IOException {
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+        if (format == WireFormat.SERIALIZATION) {
+            return new ObjectTransport(socket, in, out);
+        }
+        out.write(BinaryCodec.MAGIC);
+        out.flush();
+        byte[] answer = in.readNBytes(BinaryCodec.MAGIC.length);
+        if (!Arrays.equals(answer, BinaryCodec.MAGIC)) {
+            throw new IOException("Le serveur ne prend pas en charge le format binaire.");
+        }
+        return new BinaryTransport(socket, in, out);
+    }
+
+    /**
+     * La méthode readRequest lit la prochaine requête envoyée par le client.
+     * @return la requête, ou null si le client a fermé la connexion.
+     * @throws IOException si une erreur survient lors de la lecture.
+     */
+    public abstract Request readRequest() throws IOException;
+
+    /**
+     * La méthode writeResponse envoie une réponse au client.
+     * @param response la réponse à envoyer.
+     * @throws IOException si une erreur survient lors de l'écriture.
+     */
+    public abstract void writeResponse(Response response) throws IOException;
+
+    /**
+     * La méthode writeRequest envoie une requête au serveur.
+     * @param request la requête à envoyer.
+     * @throws IOException si une erreur survient lors de l'écriture.
+     */
+    public abstract void writeRequest(Request request) throws IOException;
+
+    /**
+     * La méthode readResponse lit la prochaine réponse envoyée par le serveur.
+     * @return la réponse, ou null si le serveur a fermé la connexion.
+     * @throws IOException si une erreur survient lors de la lecture.
+     */
+    public abstract Response readResponse() throws IOException;
+
+    /**
+     * La méthode getFormat retourne le format d'échange utilisé par ce transport.
+     * @return le format d'échange.
+     */
+    public abstract WireFormat getFormat();
+}
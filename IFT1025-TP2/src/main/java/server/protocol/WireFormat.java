@@ -0,0 +1,16 @@
+package server.protocol;
+
+/**
+ * L'énumération WireFormat liste les formats d'échange de messages acceptés par le serveur. Le format est choisi par
+ * le client à l'ouverture de la connexion.
+ */
+public enum WireFormat {
+    /**
+     * Sérialisation Java (ObjectOutputStream), utilisée par les anciens clients.
+     */
+    SERIALIZATION,
+    /**
+     * Format binaire compact de BinaryCodec, où chaque message est précédé de sa longueur.
+     */
+    BINARY
+}
@@ -0,0 +1,325 @@
+package client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import server.CourseCatalog;
+import server.RegistrationJournal;
+import server.ServerConfig;
+import server.ServerContext;
+import server.models.Course;
+import server.models.RegistrationForm;
+import server.multithreading.ServerMultithreading;
+import server.protocol.BinaryCodec;
+import server.protocol.Request;
+import server.protocol.Response;
+import server.protocol.Transport;
+import server.protocol.WireFormat;
+
+/**
+ * Tests de l'API asynchrone du client.
+ */
+public class ClientTest
+{
+    private static int startServer() throws IOException
+    {
+        File catalog = File.createTempFile("cours", ".txt");
+        catalog.deleteOnExit();
+        Files.write(catalog.toPath(), "IFT1015\tProgrammation1\tAutomne\nIFT1025\tProgrammation2\tHiver\n"
+                .getBytes(StandardCharsets.UTF_8));
+        return startServer(catalog);
+    }
+
+    private static int startServer(File catalog, String... options) throws IOException
+    {
+        File registrations = File.createTempFile("inscription", ".txt");
+        registrations.deleteOnExit();
+        ServerContext context = new ServerContext(ServerConfig.parse(options),
+                new CourseCatalog(catalog.getPath(), 0),
+                new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.NONE, 0));
+        ServerSocket socket = new ServerSocket(0);
+        Thread thread = new Thread(new ServerMultithreading(socket, context));
+        thread.setDaemon(true);
+        thread.start();
+        return socket.getLocalPort();
+    }
+
+    @Test
+    public void completesAsyncCommands() throws Exception
+    {
+        Client client = new Client("127.0.0.1", startServer());
+
+        assertEquals( 1, client.loadCoursesAsync("Automne").get().size() );
+        assertEquals( "Programmation2", client.findCourseAsync("IFT1025").get().getName() );
+        assertNull( client.findCourseAsync("IFT9999").get() );
+        client.registrationAsync(new RegistrationForm("Ada", "Lovelace", "ada@umontreal.ca", "20001234",
+                client.findCourse("IFT1015"))).get();
+        client.disconnect();
+    }
+
+    @Test
+    public void failsRejectedRegistrationWithServerMessage() throws Exception
+    {
+        Client client = new Client("127.0.0.1", startServer());
+        try {
+            client.registrationAsync(new RegistrationForm("Ada", "Lovelace", "ada@umontreal.ca", "20001234",
+                    null)).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue( e.getCause() instanceof IOException );
+            assertTrue( e.getCause().getMessage().contains("incomplet") );
+        }
+        client.disconnect();
+    }
+
+    @Test
+    public void registersBatchesWithOneResultPerForm() throws Exception
+    {
+        File catalog = File.createTempFile("cours", ".txt");
+        catalog.deleteOnExit();
+        Files.write(catalog.toPath(), "IFT1015\tProgrammation1\tAutomne\nIFT2255\tGenie_Logiciel\tAutomne\t1\n"
+                .getBytes(StandardCharsets.UTF_8));
+        int port = startServer(catalog);
+        int registered = 0;
+
+        for (WireFormat format : WireFormat.values()) {
+            Client client = new Client("127.0.0.1", port, format, 1, Client.DEFAULT_IDLE_TIMEOUT);
+            Course open = client.findCourse("IFT1015");
+            Course full = client.findCourse("IFT2255");
+            String prefix = format == WireFormat.BINARY ? "1" : "2";
+            client.registration(new RegistrationForm("Ada", "Lovelace", "ada@umontreal.ca", prefix + "0000000", full));
+            List<RegistrationForm> forms = new ArrayList<>();
+            for (int i = 1; i <= 100; i++) {
+                forms.add(new RegistrationForm("P" + i, "N" + i, i + "@umontreal.ca", prefix + (1000000 + i), open));
+            }
+            forms.add(forms.get(0));
+            forms.add(new RegistrationForm("Alan", "Turing", "alan@umontreal.ca", prefix + "0000001", full));
+            forms.add(new RegistrationForm("Grace", "Hopper", "grace@umontreal.ca", prefix + "0000002", null));
+
+            List<String> results = client.registrationBatch(forms);
+            assertEquals( 103, results.size() );
+            assertEquals( 100, results.stream().filter(Response.OK::equals).count() );
+            assertTrue( results.get(101).contains("complet") );
+            assertTrue( results.get(102).contains("incomplet") );
+            registered += 100;
+            assertTrue( client.enrollment("IFT1015").contains("\"inscrits\":" + registered) );
+            client.disconnect();
+        }
+    }
+
+    private static String loads(Client client)
+    {
+        Matcher matcher = Pattern.compile("\"CHARGER\":\\{\"count\":(\\d+),\"errors\":(\\d+)").matcher(client.stats());
+        return matcher.find() ? matcher.group(1) + "/" + matcher.group(2) : "0/0";
+    }
+
+    @Test
+    public void servesCachedCoursesAndRevalidatesThemWithTheirVersion() throws Exception
+    {
+        File catalog = File.createTempFile("cours", ".txt");
+        catalog.deleteOnExit();
+        Files.write(catalog.toPath(), "IFT1015\tProgrammation1\tAutomne\n".getBytes(StandardCharsets.UTF_8));
+        Client client = new Client("127.0.0.1", startServer(catalog));
+
+        assertEquals( 1, client.loadCourses("Automne").size() );
+        client.loadCourses("Automne").clear();
+        assertEquals( 1, client.loadCoursesAsync("Automne").get().size() );
+        assertEquals( "1/0", loads(client) );
+
+        client.setCacheTtl(0);
+        assertEquals( 1, client.loadCourses("Automne").size() );
+        assertEquals( "2/0", loads(client) );
+
+        Files.write(catalog.toPath(), "IFT1015\tProgrammation1\tAutomne\nIFT2255\tGenie_Logiciel\tAutomne\n"
+                .getBytes(StandardCharsets.UTF_8));
+        catalog.setLastModified(catalog.lastModified() + 2000);
+        assertEquals( 2, client.loadCourses("Automne").size() );
+        assertEquals( "3/0", loads(client) );
+        client.disconnect();
+    }
+
+    @Test
+    public void forgetsTheLeastRecentlyLoadedSessionsBeyondTheCacheBound() throws Exception
+    {
+        Client client = new Client("127.0.0.1", startServer());
+
+        assertEquals( 1, client.loadCourses("Automne").size() );
+        for (int i = 0; i < Client.MAX_CACHED_SESSIONS; i++) client.loadCourses("Session" + i);
+        assertEquals( (1 + Client.MAX_CACHED_SESSIONS) + "/0", loads(client) );
+        client.loadCourses("Session" + (Client.MAX_CACHED_SESSIONS - 1));
+        assertEquals( (1 + Client.MAX_CACHED_SESSIONS) + "/0", loads(client) );
+        assertEquals( 1, client.loadCourses("Automne").size() );
+        assertEquals( (2 + Client.MAX_CACHED_SESSIONS) + "/0", loads(client) );
+        client.disconnect();
+    }
+
+    @Test
+    public void streamsCoursesInChunksWithEitherFormat() throws Exception
+    {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            lines.append("IFT").append(1000 + i).append("\tCours").append(i).append("\tAutomne\n");
+        }
+        File catalog = File.createTempFile("cours", ".txt");
+        catalog.deleteOnExit();
+        Files.write(catalog.toPath(), lines.toString().getBytes(StandardCharsets.UTF_8));
+        int port = startServer(catalog);
+
+        for (WireFormat format : WireFormat.values()) {
+            Client client = new Client("127.0.0.1", port, format, 1, Client.DEFAULT_IDLE_TIMEOUT);
+            List<String> codes = new ArrayList<>();
+            try (CourseStream stream = client.streamCourses("Automne", 10)) {
+                stream.forEachRemaining(course -> codes.add(course.getCode()));
+                assertEquals( 25, stream.getTotal() );
+            }
+            assertEquals( 25, codes.size() );
+            assertEquals( "IFT1024", codes.get(24) );
+            assertEquals( 0, client.loadCoursesPage("Automne", 30, 10).size() );
+            assertEquals( 20, client.loadCoursesPage("Automne", 20, 10).getOffset() );
+            assertNull( client.loadCoursesPage("Automne", -1, 10) );
+            client.disconnect();
+        }
+    }
+
+    @Test
+    public void backsOffWhileTheServerIsBusy() throws Exception
+    {
+        File catalog = File.createTempFile("cours", ".txt");
+        catalog.deleteOnExit();
+        Files.write(catalog.toPath(), "IFT1015\tProgrammation1\tAutomne\n".getBytes(StandardCharsets.UTF_8));
+        int port = startServer(catalog, "--max-connections", "1", "--queue", "1", "--wait-timeout", "100",
+                "--retry-after", "50");
+        Client holder = new Client("127.0.0.1", port, WireFormat.BINARY, 1, Client.DEFAULT_IDLE_TIMEOUT);
+        assertEquals( "Programmation1", holder.findCourse("IFT1015").getName() );
+
+        Client refused = new Client("127.0.0.1", port);
+        refused.setBusyRetries(0);
+        try {
+            refused.findCourseAsync("IFT1015").get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue( e.getCause() instanceof ServerBusyException );
+            assertEquals( 50, ((ServerBusyException) e.getCause()).getRetryAfter() );
+        }
+
+        Client patient = new Client("127.0.0.1", port);
+        CompletableFuture<Course> course = patient.findCourseAsync("IFT1015");
+        Thread.sleep(150);
+        holder.disconnect();
+        assertEquals( "Programmation1", course.get().getName() );
+        patient.disconnect();
+    }
+
+    @Test
+    public void timesOutWhenTheServerDoesNotAnswer() throws Exception
+    {
+        try (ServerSocket silent = new ServerSocket(0)) {
+            Client client = new Client("127.0.0.1", silent.getLocalPort());
+            client.setTimeout(200);
+            try {
+                client.loadCoursesAsync("Automne").get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue( e.getCause() instanceof TimeoutException );
+            }
+        }
+    }
+
+    private static void dropConnections(ServerSocket dropping, int count, CompletableFuture<?> command)
+            throws Exception
+    {
+        for (int i = 0; i < count; i++) {
+            try (Socket socket = dropping.accept()) {
+                socket.getInputStream().readNBytes(BinaryCodec.MAGIC.length);
+                socket.getOutputStream().write(BinaryCodec.MAGIC);
+                socket.getInputStream().read();
+            }
+        }
+        try {
+            command.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue( e.getCause() instanceof IOException );
+        }
+        try {
+            dropping.accept().close();
+            fail();
+        } catch (SocketTimeoutException e) {
+            // la commande n'a pas été renvoyée une fois de plus
+        }
+    }
+
+    @Test
+    public void resendsOnlyReadCommandsAfterAConnectionFailure() throws Exception
+    {
+        try (ServerSocket dropping = new ServerSocket(0)) {
+            dropping.setSoTimeout(1000);
+            Client finder = new Client("127.0.0.1", dropping.getLocalPort(), WireFormat.BINARY, 1,
+                    Client.DEFAULT_IDLE_TIMEOUT);
+            dropConnections(dropping, 2, finder.findCourseAsync("IFT1015"));
+            finder.disconnect();
+
+            Client registrar = new Client("127.0.0.1", dropping.getLocalPort(), WireFormat.BINARY, 1,
+                    Client.DEFAULT_IDLE_TIMEOUT);
+            dropConnections(dropping, 1, registrar.registrationAsync(new RegistrationForm("Ada", "Lovelace",
+                    "ada@umontreal.ca", "20001234", new Course("Programmation1", "IFT1015", "Automne"))));
+            registrar.disconnect();
+        }
+    }
+
+    @Test
+    public void keepsTheResultsOfCommittedChunksWhenALaterChunkFails() throws Exception
+    {
+        try (ServerSocket partial = new ServerSocket(0)) {
+            Thread server = new Thread(() -> {
+                try (Socket socket = partial.accept()) {
+                    Transport transport = Transport.accept(socket);
+                    Request first = transport.readRequest();
+                    ArrayList<String> results = new ArrayList<>(
+                            Collections.nCopies(((List<?>) first.getPayload()).size(), Response.OK));
+                    transport.writeResponse(new Response(first.getId(), Response.OK, results));
+                    transport.readRequest();
+                } catch (IOException e) {
+                    // le client constate l'échec de la seconde tranche
+                }
+            });
+            server.setDaemon(true);
+            server.start();
+
+            Client client = new Client("127.0.0.1", partial.getLocalPort(), WireFormat.BINARY, 1,
+                    Client.DEFAULT_IDLE_TIMEOUT);
+            Course course = new Course("Programmation1", "IFT1015", "Automne");
+            List<RegistrationForm> forms = new ArrayList<>();
+            for (int i = 0; i < 2 * Client.MAX_BATCH_SIZE + 1; i++) {
+                forms.add(new RegistrationForm("P", "N", "p@umontreal.ca", String.valueOf(20000000 + i), course));
+            }
+            List<String> results = client.registrationBatch(forms);
+            assertEquals( forms.size(), results.size() );
+            assertEquals( Response.OK, results.get(Client.MAX_BATCH_SIZE - 1) );
+            assertTrue( results.get(Client.MAX_BATCH_SIZE).startsWith(Client.NOT_CONFIRMED) );
+            assertTrue( results.get(2 * Client.MAX_BATCH_SIZE - 1).startsWith(Client.NOT_CONFIRMED) );
+            assertEquals( Client.NOT_SENT, results.get(2 * Client.MAX_BATCH_SIZE) );
+            client.disconnect();
+        }
+    }
+}
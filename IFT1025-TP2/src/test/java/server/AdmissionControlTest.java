@@ -0,0 +1,101 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import server.protocol.Response;
+
+/**
+ * Tests du contrôle d'admission des connexions.
+ */
+public class AdmissionControlTest
+{
+    @Test
+    public void admitsImmediatelyWhilePlacesRemain()
+    {
+        AdmissionControl admission = new AdmissionControl(2, 1, 1000, 500);
+
+        assertTrue( admission.admit().join() );
+        assertTrue( admission.admit().join() );
+        assertEquals( 0, admission.getAvailable() );
+        admission.release();
+        assertEquals( 1, admission.getAvailable() );
+    }
+
+    @Test
+    public void givesAddedPlacesToWaiters()
+    {
+        AdmissionControl admission = new AdmissionControl(1, 2, 10000, 500);
+        assertTrue( admission.admit().join() );
+        CompletableFuture<Boolean> waiting = admission.admit();
+        assertFalse( waiting.isDone() );
+
+        admission.setMaxConnections(AdmissionControl.UNLIMITED);
+        assertTrue( waiting.join() );
+        for (int i = 0; i < 10000; i++) assertTrue( admission.admit().join() );
+        assertEquals( 0, admission.getWaiting() );
+    }
+
+    @Test
+    public void handsReleasedPlacesToWaitersInArrivalOrder()
+    {
+        AdmissionControl admission = new AdmissionControl(1, 2, 10000, 500);
+        assertTrue( admission.admit().join() );
+
+        CompletableFuture<Boolean> first = admission.admit();
+        CompletableFuture<Boolean> second = admission.admit();
+        assertFalse( first.isDone() );
+        assertEquals( 2, admission.getWaiting() );
+
+        admission.release();
+        assertTrue( first.join() );
+        assertFalse( second.isDone() );
+        admission.release();
+        assertTrue( second.join() );
+        assertEquals( 0, admission.getWaiting() );
+        assertEquals( 0, admission.getAvailable() );
+    }
+
+    @Test
+    public void refusesWhenTheQueueIsFullOrTheWaitTimesOut()
+    {
+        AdmissionControl admission = new AdmissionControl(1, 1, 50, 500);
+        assertTrue( admission.admit().join() );
+
+        CompletableFuture<Boolean> waiting = admission.admit();
+        assertFalse( admission.admit().join() );
+        assertFalse( waiting.join() );
+        assertEquals( 0, admission.getWaiting() );
+
+        admission.release();
+        assertEquals( 1, admission.getAvailable() );
+    }
+
+    @Test
+    public void refusesWaitersAndNewConnectionsOnceClosed()
+    {
+        AdmissionControl admission = new AdmissionControl(1, 2, 10000, 500);
+        assertTrue( admission.admit().join() );
+        CompletableFuture<Boolean> waiting = admission.admit();
+
+        assertEquals( 1, admission.close() );
+        assertFalse( waiting.join() );
+        admission.release();
+        assertFalse( admission.admit().join() );
+    }
+
+    @Test
+    public void answersBusyWithTheRetryDelay()
+    {
+        Response busy = new AdmissionControl(1, 1, 50, 750).busy(7);
+
+        assertEquals( 7, busy.getId() );
+        assertEquals( Response.BUSY, busy.getStatus() );
+        assertEquals( "750", busy.getPayload() );
+    }
+}
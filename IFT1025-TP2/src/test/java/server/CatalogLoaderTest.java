@@ -0,0 +1,72 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+/**
+ * Tests du chargement parallèle du catalogue.
+ */
+public class CatalogLoaderTest
+{
+    private static File writeCatalog(String content) throws IOException
+    {
+        File file = File.createTempFile("cours", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void reportsInvalidLinesWithTheirNumberWithoutAborting() throws IOException
+    {
+        File file = writeCatalog("IFT1015\tProgrammation1\tAutomne\t30\r\n\nIFT1025\tProgrammation2\n"
+                + "IFT2255\tGenie_Logiciel\tAutomne\tbeaucoup\nIFT1227\tArchitecture\tHiver");
+        CourseCatalog.Snapshot snapshot = CatalogLoader.load(file.toPath(), 16);
+
+        assertEquals( 2, snapshot.getErrorCount() );
+        assertEquals( "ligne 3 : 2 champ(s) au lieu d'au moins 3", snapshot.getErrors().get(0) );
+        assertEquals( "ligne 4 : capacité invalide pour le cours IFT2255", snapshot.getErrors().get(1) );
+        assertEquals( 2, snapshot.getCourses("Automne").size() );
+        assertEquals( 30, snapshot.getCapacity("Automne", "IFT1015") );
+        assertEquals( CourseCatalog.UNLIMITED, snapshot.getCapacity("Automne", "IFT2255") );
+        assertEquals( "Architecture", snapshot.findCourse("IFT1227").getName() );
+        assertNull( snapshot.findCourse("IFT1025") );
+    }
+
+    @Test
+    public void loadsTheSameCatalogWhateverTheRangeSize() throws IOException
+    {
+        String[] sessions = {"Automne", "Hiver", "Ete"};
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 40000; i++) {
+            if (i % 997 == 0) content.append("ligne invalide\n");
+            content.append("IFT").append(i % 30000).append("\tCours_é").append(i).append('\t')
+                    .append(sessions[i % 3]).append('\t').append(i % 200).append(i % 2 == 0 ? "\n" : "\r\n");
+        }
+        File file = writeCatalog(content.toString());
+        CourseCatalog.Snapshot single = CatalogLoader.load(file.toPath(), Integer.MAX_VALUE);
+
+        for (int rangeSize : new int[] {1, 4096, CatalogLoader.MAP_THRESHOLD}) {
+            CourseCatalog.Snapshot split = CatalogLoader.load(file.toPath(), rangeSize);
+            assertEquals( single.size(), split.size() );
+            assertEquals( single.getErrors(), split.getErrors() );
+            for (String session : sessions) {
+                assertEquals( single.getCourses(session).size(), split.getCourses(session).size() );
+                assertEquals( single.getVersion(session), split.getVersion(session) );
+            }
+            assertEquals( "Cours_é39999", split.findCourse("IFT9999").getName() );
+            assertEquals( 199, split.getCapacity("Automne", "IFT9999") );
+        }
+        assertEquals( 30000, single.size() );
+        assertEquals( 41, single.getErrorCount() );
+        assertEquals( "ligne 1 : 1 champ(s) au lieu d'au moins 3", single.getErrors().get(0) );
+        assertEquals( "ligne 999 : 1 champ(s) au lieu d'au moins 3", single.getErrors().get(1) );
+    }
+}
@@ -0,0 +1,47 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+import server.models.CourseList;
+import server.protocol.EncodedPayload;
+import server.protocol.Response;
+
+/**
+ * Tests du cache des réponses encodées du catalogue.
+ */
+public class CatalogResponseCacheTest
+{
+    @Test
+    public void reusesEncodedResponsesUntilTheCatalogChanges() throws IOException
+    {
+        File file = File.createTempFile("cours", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "IFT1015\tProgrammation1\tAutomne\n".getBytes(StandardCharsets.UTF_8));
+        CourseCatalog catalog = new CourseCatalog(file.getPath(), 0);
+        CatalogResponseCache cache = new CatalogResponseCache();
+
+        EncodedPayload first = cache.get(catalog.snapshot(), "Automne", false);
+        assertSame( first, cache.get(catalog.snapshot(), "Automne", false) );
+        assertNotSame( first, cache.get(catalog.snapshot(), "Automne", true) );
+        assertSame( cache.get(catalog.snapshot(), "Hiver", false), cache.get(catalog.snapshot(), "Inconnue", false) );
+        Response response = cache.get(catalog.snapshot(), "Automne", true).toResponse(4);
+        assertEquals( catalog.getVersion("Automne"), ((CourseList) response.getPayload()).getVersion() );
+
+        Files.write(file.toPath(), "IFT1015\tProgrammation1\tAutomne\nIFT2255\tGenie_Logiciel\tAutomne\n"
+                .getBytes(StandardCharsets.UTF_8));
+        file.setLastModified(file.lastModified() + 2000);
+        EncodedPayload reloaded = cache.get(catalog.snapshot(), "Automne", false);
+        assertNotSame( first, reloaded );
+        assertEquals( 2, ((List<?>) reloaded.toResponse(5).getPayload()).size() );
+    }
+}
@@ -0,0 +1,96 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import server.protocol.Request;
+import server.protocol.Response;
+
+/**
+ * Tests du registre des commandes.
+ */
+public class CommandRegistryTest
+{
+    @Test
+    public void runsInlineHandlersOnTheCallingThread()
+    {
+        CommandRegistry registry = new CommandRegistry();
+        Thread caller = Thread.currentThread();
+        registry.register("ECHO", (request, arg) -> new Response(request.getId(), Response.OK,
+                Thread.currentThread() == caller ? arg : "autre thread"));
+
+        CompletableFuture<Response> response = registry.dispatch("ECHO", "bonjour",
+                new Request(7, "ECHO bonjour", null));
+
+        assertTrue( response.isDone() );
+        assertEquals( 7, response.join().getId() );
+        assertEquals( "bonjour", response.join().getPayload() );
+        assertNull( registry.dispatch("INCONNUE", "", new Request(8, "INCONNUE", null)) );
+    }
+
+    @Test
+    public void runsSlowHandlersOnTheirExecutor() throws Exception
+    {
+        CommandRegistry registry = new CommandRegistry();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        registry.register("LENTE", (request, arg) -> {
+            release.await();
+            return new Response(request.getId(), Response.OK, null);
+        }, executor);
+
+        CompletableFuture<Response> response = registry.dispatch("LENTE", "", new Request(1, "LENTE", null));
+        assertFalse( response.isDone() );
+        release.countDown();
+        assertTrue( response.get(5, TimeUnit.SECONDS).isOk() );
+        executor.shutdown();
+    }
+
+    @Test
+    public void turnsHandlerFailuresIntoErrorResponses()
+    {
+        CommandRegistry registry = new CommandRegistry();
+        registry.register("PANNE", (request, arg) -> {
+            throw new IllegalStateException("panne");
+        });
+
+        Response response = registry.dispatch("PANNE", "", new Request(3, "PANNE", null)).join();
+
+        assertEquals( Response.ERROR, response.getStatus() );
+        assertEquals( 3, response.getId() );
+    }
+
+    @Test
+    public void keepsAlertingPluginEventHandlers() throws IOException
+    {
+        File catalog = File.createTempFile("cours", ".txt");
+        File registrations = File.createTempFile("inscription", ".txt");
+        catalog.deleteOnExit();
+        registrations.deleteOnExit();
+        ServerContext context = new ServerContext(ServerConfig.parse(new String[0]),
+                new CourseCatalog(catalog.getPath(), 0),
+                new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.NONE, 0));
+        List<String> seen = new ArrayList<>();
+        context.getHandlers().add((cmd, arg) -> seen.add(cmd + ":" + arg));
+        ClientHandler handler = new ClientHandler(context);
+
+        assertTrue( handler.dispatch(new Request(1, "PING", null)).join().isOk() );
+        assertEquals( Response.ERROR, handler.dispatch(new Request(2, "AUTRE x", null)).join().getStatus() );
+        assertEquals( 2, seen.size() );
+        assertEquals( "AUTRE:x", seen.get(1) );
+    }
+}
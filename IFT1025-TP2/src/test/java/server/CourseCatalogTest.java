@@ -0,0 +1,96 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Test;
+
+/**
+ * Tests du catalogue des cours en mémoire.
+ */
+public class CourseCatalogTest
+{
+    private static File writeCatalog(String content) throws IOException
+    {
+        File file = File.createTempFile("cours", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void indexesCoursesBySessionAndCode() throws IOException
+    {
+        File file = writeCatalog("IFT1015\tProgrammation1\tAutomne\nIFT1025\tProgrammation2\tHiver\n"
+                + "IFT2255\tGenie_Logiciel\tAutomne\n\n");
+        CourseCatalog catalog = new CourseCatalog(file.getPath(), 0);
+
+        assertEquals( 2, catalog.getCourses("Automne").size() );
+        assertEquals( "IFT2255", catalog.getCourses("Automne").get(1).getCode() );
+        assertEquals( "Programmation2", catalog.findCourse("IFT1025").getName() );
+        assertTrue( catalog.getCourses("Ete").isEmpty() );
+        assertNull( catalog.findCourse("IFT9999") );
+    }
+
+    @Test
+    public void readsOptionalCapacityColumn() throws IOException
+    {
+        File file = writeCatalog("IFT1015\tProgrammation1\tAutomne\t30\nIFT1025\tProgrammation2\tHiver\n"
+                + "IFT2255\tGenie_Logiciel\tAutomne\tbeaucoup\n");
+        CourseCatalog catalog = new CourseCatalog(file.getPath(), 0);
+
+        assertEquals( 30, catalog.getCapacity("Automne", "IFT1015") );
+        assertEquals( CourseCatalog.UNLIMITED, catalog.getCapacity("Hiver", "IFT1025") );
+        assertEquals( CourseCatalog.UNLIMITED, catalog.getCapacity("Automne", "IFT2255") );
+        assertEquals( "Automne", catalog.findCourse("IFT1015").getSession() );
+    }
+
+    @Test
+    public void keepsCapacitiesPerSession() throws IOException
+    {
+        File file = writeCatalog("IFT1015\tProgrammation1\tAutomne\t30\nIFT1015\tProgrammation1\tHiver\t10\n"
+                + "IFT2255\tGenie_Logiciel\tAutomne\t20\nIFT2255\tGenie_Logiciel\tAutomne\n");
+        CourseCatalog catalog = new CourseCatalog(file.getPath(), 0);
+
+        assertEquals( 30, catalog.getCapacity("Automne", "IFT1015") );
+        assertEquals( 10, catalog.getCapacity("Hiver", "IFT1015") );
+        assertEquals( CourseCatalog.UNLIMITED, catalog.getCapacity("Ete", "IFT1015") );
+        assertEquals( CourseCatalog.UNLIMITED, catalog.getCapacity("Automne", "IFT2255") );
+    }
+
+    @Test
+    public void findsCoursesBySessionAndName() throws IOException
+    {
+        File file = writeCatalog("IFT1015\tProgrammation1\tAutomne\nIFT1015\tProgrammation1\tHiver\n"
+                + "IFT1016\tProgrammation1\tAutomne\n");
+        CourseCatalog.Snapshot snapshot = new CourseCatalog(file.getPath(), 0).snapshot();
+
+        assertEquals( "IFT1015", snapshot.findCourse("Automne", "Programmation1").getCode() );
+        assertEquals( "Hiver", snapshot.findCourse("Hiver", "Programmation1").getSession() );
+        assertEquals( "IFT1016", snapshot.getCourse("Automne", "IFT1016").getCode() );
+        assertNull( snapshot.findCourse("Ete", "Programmation1") );
+        assertNull( snapshot.getCourse("Hiver", "IFT1016") );
+    }
+
+    @Test
+    public void swapsSnapshotWhenFileChanges() throws IOException
+    {
+        File file = writeCatalog("IFT1015\tProgrammation1\tAutomne\n");
+        CourseCatalog catalog = new CourseCatalog(file.getPath(), 0);
+        CourseCatalog.Snapshot before = catalog.snapshot();
+
+        Files.write(file.toPath(), "IFT1015\tProgrammation1\tAutomne\nIFT2256\tBase_de_donnees\tEte\n"
+                .getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        assertEquals( 1, catalog.getCourses("Ete").size() );
+        assertEquals( 1, before.size() );
+    }
+}
@@ -0,0 +1,193 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import server.models.Course;
+import server.models.RegistrationForm;
+import server.protocol.Request;
+import server.protocol.Response;
+
+/**
+ * Tests de la détection des inscriptions en double.
+ */
+public class EnrollmentIndexTest
+{
+    private static File catalog() throws Exception
+    {
+        File catalog = File.createTempFile("cours", ".txt");
+        catalog.deleteOnExit();
+        Files.write(catalog.toPath(), Arrays.asList("IFT2255\tGenie_Logiciel\tAutomne\t10"), StandardCharsets.UTF_8);
+        return catalog;
+    }
+
+    private static RegistrationForm form(String matricule)
+    {
+        return new RegistrationForm("test", "test", "test", matricule,
+                new Course("Genie_Logiciel", "IFT2255", "Automne"));
+    }
+
+    @Test
+    public void rebuildsFromTheJournalAndCountsRepeatedLines() throws Exception
+    {
+        File registrations = File.createTempFile("inscription", ".txt");
+        registrations.deleteOnExit();
+        Files.write(registrations.toPath(), Arrays.asList(
+                "Automne\tGenie_Logiciel\t78787878\ttest\ttest\ttest",
+                "Automne\tGenie_Logiciel\t78787878\ttest\ttest\ttest",
+                "Ete\tBase_de_donnees\t99999999\tSmo\tKe\ts@k"), StandardCharsets.UTF_8);
+
+        EnrollmentIndex index = EnrollmentIndex.load(registrations.toPath(),
+                new CourseCatalog(catalog().getPath(), 0));
+        assertEquals( 2, index.size() );
+        assertEquals( 1, index.getDuplicates() );
+        assertTrue( index.contains(form("78787878")) );
+        assertFalse( index.add(form("78787878")) );
+        assertTrue( index.add(form("12345678")) );
+        assertEquals( 1, index.getEnrollment("Automne", "IFT2255") );
+    }
+
+    @Test
+    public void neverFillsACourseBeyondItsCapacity() throws Exception
+    {
+        File registrations = File.createTempFile("inscription", ".txt");
+        registrations.deleteOnExit();
+        ServerContext context = new ServerContext(ServerConfig.parse(new String[0]),
+                new CourseCatalog(catalog().getPath(), 0),
+                new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.NONE, 0));
+        ClientHandler handler = new ClientHandler(context);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        AtomicInteger accepted = new AtomicInteger();
+        CompletableFuture<?>[] done = new CompletableFuture<?>[50];
+        for (int i = 0; i < done.length; i++) {
+            Request request = new Request(i, ClientHandler.REGISTER_COMMAND, form(String.valueOf(20000000 + i)));
+            done[i] = CompletableFuture.runAsync(() -> {
+                Response response = handler.dispatch(request).join();
+                if (response.isOk()) accepted.incrementAndGet();
+                else assertTrue( ((String) response.getPayload()).contains("complet") );
+            }, clients);
+        }
+        CompletableFuture.allOf(done).join();
+        clients.shutdown();
+        context.getJournal().close();
+
+        assertEquals( 10, accepted.get() );
+        assertEquals( 10, Files.readAllLines(registrations.toPath(), StandardCharsets.UTF_8).size() );
+        Response enrollment = handler.dispatch(new Request(99, ClientHandler.ENROLLMENT_COMMAND + " IFT2255", null))
+                .join();
+        assertEquals( "{\"code\":\"IFT2255\",\"session\":\"Automne\",\"inscrits\":10,\"capacite\":10}",
+                enrollment.getPayload() );
+    }
+
+    @Test
+    public void acceptsOnlyOneOfConcurrentIdenticalRegistrations() throws Exception
+    {
+        File registrations = File.createTempFile("inscription", ".txt");
+        registrations.deleteOnExit();
+        ServerContext context = new ServerContext(ServerConfig.parse(new String[0]),
+                new CourseCatalog(catalog().getPath(), 0),
+                new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.NONE, 0));
+        ClientHandler handler = new ClientHandler(context);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        AtomicInteger accepted = new AtomicInteger();
+        CompletableFuture<?>[] done = new CompletableFuture<?>[32];
+        for (int i = 0; i < done.length; i++) {
+            Request request = new Request(i, ClientHandler.REGISTER_COMMAND, form("20001234"));
+            done[i] = CompletableFuture.runAsync(() -> {
+                if (handler.dispatch(request).join().isOk()) accepted.incrementAndGet();
+            }, clients);
+        }
+        CompletableFuture.allOf(done).join();
+        clients.shutdown();
+        context.getJournal().close();
+
+        assertEquals( 1, accepted.get() );
+        List<String> lines = Files.readAllLines(registrations.toPath(), StandardCharsets.UTF_8);
+        assertEquals( 1, lines.size() );
+        Response repeated = handler.dispatch(new Request(99, ClientHandler.REGISTER_COMMAND, form("20001234"))).join();
+        assertTrue( ((String) repeated.getPayload()).contains("déjà inscrit") );
+    }
+
+    @Test
+    public void confirmsRepeatedRegistrationsWithoutWritingThemWhenIgnoringDuplicates() throws Exception
+    {
+        File registrations = File.createTempFile("inscription", ".txt");
+        registrations.deleteOnExit();
+        ServerContext context = new ServerContext(ServerConfig.parse(new String[] {"--duplicates", "ignore"}),
+                new CourseCatalog(catalog().getPath(), 0),
+                new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.NONE, 0));
+        ClientHandler handler = new ClientHandler(context);
+
+        assertTrue( handler.dispatch(new Request(1, ClientHandler.REGISTER_COMMAND, form("20001234"))).join().isOk() );
+        assertTrue( handler.dispatch(new Request(2, ClientHandler.REGISTER_COMMAND, form("20001234"))).join().isOk() );
+        context.getJournal().close();
+        assertEquals( 1, Files.readAllLines(registrations.toPath(), StandardCharsets.UTF_8).size() );
+    }
+
+    @Test
+    public void usesTheCatalogCourseRatherThanTheOneSentByTheClient() throws Exception
+    {
+        File registrations = File.createTempFile("inscription", ".txt");
+        registrations.deleteOnExit();
+        ServerContext context = new ServerContext(ServerConfig.parse(new String[0]),
+                new CourseCatalog(catalog().getPath(), 0),
+                new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.NONE, 0));
+        ClientHandler handler = new ClientHandler(context);
+
+        RegistrationForm forged = new RegistrationForm("test", "test", "test", "20001234",
+                new Course("Autre_nom", "IFT2255", "Automne"));
+        assertTrue( handler.dispatch(new Request(1, ClientHandler.REGISTER_COMMAND, forged)).join().isOk() );
+        RegistrationForm unknown = new RegistrationForm("test", "test", "test", "20001234",
+                new Course("Genie_Logiciel", "IFT2255", "Hiver"));
+        Response refused = handler.dispatch(new Request(2, ClientHandler.REGISTER_COMMAND, unknown)).join();
+        assertFalse( refused.isOk() );
+        assertTrue( ((String) refused.getPayload()).contains("n'est pas offert") );
+        context.getJournal().close();
+
+        assertEquals( Arrays.asList("Automne\tGenie_Logiciel\t20001234\ttest\ttest\ttest"),
+                Files.readAllLines(registrations.toPath(), StandardCharsets.UTF_8) );
+        assertEquals( 1, context.getEnrollments().getEnrollment("Automne", "IFT2255") );
+        assertEquals( 0, context.getEnrollments().getEnrollment("Hiver", "IFT2255") );
+    }
+
+    @Test
+    public void refusesFormsThatDoNotFitTheStoreBeforeWritingThem() throws Exception
+    {
+        File registrations = File.createTempFile("inscription", ".txt");
+        registrations.deleteOnExit();
+        File binary = File.createTempFile("inscription", ".bin");
+        binary.deleteOnExit();
+        ServerContext context = new ServerContext(ServerConfig.parse(new String[0]),
+                new CourseCatalog(catalog().getPath(), 0),
+                new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.NONE, 0));
+        context.setStore(new RegistrationStore(binary.getPath()));
+        ClientHandler handler = new ClientHandler(context);
+
+        RegistrationForm form = form("20001234");
+        form.setEmail(String.join("", Collections.nCopies(60, "e")) + "@umontreal.ca");
+        Response refused = handler.dispatch(new Request(1, ClientHandler.REGISTER_COMMAND, form)).join();
+        assertFalse( refused.isOk() );
+        assertTrue( ((String) refused.getPayload()).contains("email") );
+        assertTrue( handler.dispatch(new Request(2, ClientHandler.REGISTER_COMMAND, form("20001234"))).join().isOk() );
+        context.getJournal().close();
+        assertEquals( 1, context.getStore().size() );
+        context.getStore().close();
+
+        assertEquals( 1, Files.readAllLines(registrations.toPath(), StandardCharsets.UTF_8).size() );
+        assertEquals( 1, context.getEnrollments().getEnrollment("Automne", "IFT2255") );
+    }
+}
@@ -0,0 +1,62 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+/**
+ * Tests du curseur de champs.
+ */
+public class FieldCursorTest
+{
+    @Test
+    public void readsFieldsLikeSplitWithNegativeLimit()
+    {
+        FieldCursor fields = new FieldCursor('\t');
+        for (String line : new String[] {"a\tb\tc", "a\t\tc\t", "", "\t", "IFT1015\tProgrammation1\tAutomne\t120"}) {
+            String[] expected = line.split("\t", -1);
+            fields.reset(line);
+            assertEquals( expected.length, fields.remaining() );
+            for (String field : expected) assertEquals( field, fields.next() );
+            assertFalse( fields.hasNext() );
+        }
+        try {
+            fields.next();
+            fail();
+        } catch (NoSuchElementException e) {
+            assertEquals( 0, fields.remaining() );
+        }
+    }
+
+    @Test
+    public void parsesIntegersWithoutCreatingStrings()
+    {
+        FieldCursor fields = new FieldCursor(" 42 \t-7\t\tx1\t2147483648\t-2147483648\t+3", '\t');
+
+        assertEquals( 42, fields.nextInt(-1) );
+        assertEquals( -7, fields.nextInt(-1) );
+        assertEquals( -1, fields.nextInt(-1) );
+        assertEquals( -1, fields.nextInt(-1) );
+        assertEquals( -1, fields.nextInt(-1) );
+        assertEquals( Integer.MIN_VALUE, fields.nextInt(-1) );
+        fields.skip();
+        assertFalse( fields.hasNext() );
+    }
+
+    @Test
+    public void splitsCommandLinesLikeTheFormerParser()
+    {
+        ClientHandler.CommandLine line = ClientHandler.processCommandLine("CHARGER Automne  flux=10 ");
+        assertEquals( "CHARGER", line.getCommand() );
+        assertEquals( "Automne  flux=10", line.getArgument() );
+        line = ClientHandler.processCommandLine("PING");
+        assertEquals( "PING", line.getCommand() );
+        assertEquals( "", line.getArgument() );
+        assertTrue( ClientHandler.processCommandLine("").getCommand().isEmpty() );
+    }
+}
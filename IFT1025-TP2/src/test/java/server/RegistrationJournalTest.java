@@ -0,0 +1,130 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import server.models.Course;
+import server.models.RegistrationForm;
+
+/**
+ * Tests du journal des inscriptions.
+ */
+public class RegistrationJournalTest
+{
+    private static RegistrationForm form(int i)
+    {
+        return new RegistrationForm("Prenom" + i, "Nom" + i, i + "@umontreal.ca", String.valueOf(20000000 + i),
+                new Course("Programmation1", "IFT1015", "Automne"));
+    }
+
+    private static List<String> writeConcurrently(RegistrationJournal.Durability durability, long interval)
+            throws Exception
+    {
+        File file = File.createTempFile("inscription", ".txt");
+        file.deleteOnExit();
+        ExecutorService submitters = Executors.newFixedThreadPool(8);
+        try (RegistrationJournal journal = new RegistrationJournal(file.getPath(), durability, interval)) {
+            List<CompletableFuture<Void>> acks = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                RegistrationForm form = form(i);
+                acks.add(CompletableFuture.supplyAsync(() -> journal.submit(form), submitters).join());
+            }
+            for (CompletableFuture<Void> ack : acks) ack.get(5, TimeUnit.SECONDS);
+        } finally {
+            submitters.shutdown();
+        }
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void writesEveryFormOnItsOwnLine() throws Exception
+    {
+        for (RegistrationJournal.Durability durability : RegistrationJournal.Durability.values()) {
+            List<String> lines = writeConcurrently(durability, 5);
+            assertEquals( 200, lines.size() );
+            assertEquals( 200, new HashSet<>(lines).size() );
+            for (String line : lines) {
+                assertEquals( 6, line.split("\t").length );
+                assertTrue( line.startsWith("Automne\tProgrammation1\t2") );
+            }
+        }
+    }
+
+    @Test
+    public void writesBatchesInOneSubmission() throws Exception
+    {
+        File file = File.createTempFile("inscription", ".txt");
+        file.deleteOnExit();
+        List<RegistrationForm> forms = new ArrayList<>();
+        for (int i = 0; i < 50; i++) forms.add(form(i));
+        try (RegistrationJournal journal = new RegistrationJournal(file.getPath(),
+                RegistrationJournal.Durability.BATCH, 0)) {
+            journal.submitAll(forms).get(5, TimeUnit.SECONDS);
+            journal.submit(form(50)).get(5, TimeUnit.SECONDS);
+        }
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals( 51, lines.size() );
+        assertEquals( RegistrationJournal.toLine(form(49)), lines.get(49) + "\n" );
+    }
+
+    @Test
+    public void syncsOnRequestWithoutWaitingForTheInterval() throws Exception
+    {
+        File file = File.createTempFile("inscription", ".txt");
+        file.deleteOnExit();
+        try (RegistrationJournal journal = new RegistrationJournal(file.getPath(),
+                RegistrationJournal.Durability.INTERVAL, 60000)) {
+            CompletableFuture<Void> ack = journal.submit(form(1));
+            Thread.sleep(100);
+            assertFalse( ack.isDone() );
+            journal.sync().get(5, TimeUnit.SECONDS);
+            assertTrue( ack.isDone() );
+        }
+        assertEquals( 1, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size() );
+    }
+
+    @Test
+    public void rejectsFormsAfterClose() throws Exception
+    {
+        File file = File.createTempFile("inscription", ".txt");
+        file.deleteOnExit();
+        RegistrationJournal journal = new RegistrationJournal(file.getPath(), RegistrationJournal.Durability.BATCH, 0);
+        journal.close();
+        assertTrue( journal.submit(form(1)).isCompletedExceptionally() );
+    }
+
+    @Test
+    public void writesOnlySubmissionsThatCouldNotBeCancelled() throws Exception
+    {
+        File file = File.createTempFile("inscription", ".txt");
+        file.deleteOnExit();
+        int kept = 0;
+        try (RegistrationJournal journal = new RegistrationJournal(file.getPath(),
+                RegistrationJournal.Durability.BATCH, 0)) {
+            List<CompletableFuture<Void>> acks = new ArrayList<>();
+            for (int i = 0; i < 200; i++) acks.add(journal.submit(form(i)));
+            for (CompletableFuture<Void> ack : acks) {
+                if (!ack.cancel(false)) kept++;
+            }
+            journal.sync().get(5, TimeUnit.SECONDS);
+            for (CompletableFuture<Void> ack : acks) {
+                if (!ack.isCancelled()) assertFalse( ack.cancel(false) );
+            }
+        }
+        assertEquals( kept, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size() );
+    }
+}
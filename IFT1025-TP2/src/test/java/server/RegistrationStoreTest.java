@@ -0,0 +1,95 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import server.models.Course;
+import server.models.RegistrationForm;
+
+/**
+ * Tests du magasin binaire des inscriptions.
+ */
+public class RegistrationStoreTest
+{
+    private static File tempFile(String suffix) throws Exception
+    {
+        File file = File.createTempFile("inscription", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static RegistrationForm form(int i, String code)
+    {
+        return new RegistrationForm("Prénom" + i, "Nom" + i, i + "@umontreal.ca", String.valueOf(20000000 + i),
+                new Course("Cours_" + code, code, "Automne"));
+    }
+
+    @Test
+    public void findsRecordsByMatriculeAndCourseAfterReopening() throws Exception
+    {
+        File file = tempFile(".bin");
+        file.delete();
+        try (RegistrationStore store = new RegistrationStore(file.getPath())) {
+            for (int i = 0; i < 3000; i++) {
+                store.append(form(i % 1000, i % 2 == 0 ? "IFT1015" : "IFT1025"));
+            }
+        }
+        try (RegistrationStore store = new RegistrationStore(file.getPath())) {
+            assertEquals( 3000, store.size() );
+            List<RegistrationStore.Record> records = store.findByMatricule("20000007");
+            assertEquals( 3, records.size() );
+            assertEquals( "Prénom7", records.get(0).getPrenom() );
+            assertEquals( "IFT1025", records.get(0).getCode() );
+            assertEquals( 1007, records.get(1).getNumber() );
+            assertEquals( 1500, store.findByCourse("IFT1015").size() );
+            assertTrue( store.findByMatricule("99999999").isEmpty() );
+
+            int n = store.append(form(5000, "IFT2255"));
+            assertEquals( 3000, n );
+            assertEquals( "20005000", store.findByCourse("IFT2255").get(0).getMatricule() );
+        }
+    }
+
+    @Test
+    public void importsAndExportsTheTextFormat() throws Exception
+    {
+        File catalogFile = tempFile(".txt");
+        Files.write(catalogFile.toPath(), Arrays.asList("IFT2255\tGenie_Logiciel\tAutomne"), StandardCharsets.UTF_8);
+        File text = tempFile(".txt");
+        List<String> lines = Arrays.asList(
+                "Automne\tGenie_Logiciel\t34343434\tMaxime\tBelotti\tmaximelotti@gmail.com",
+                "Ete\tBase_de_donnees\t99999999\tSmo\tKe\ts@k");
+        Files.write(text.toPath(), lines, StandardCharsets.UTF_8);
+        File file = tempFile(".bin");
+        file.delete();
+        File exported = tempFile(".txt");
+
+        try (RegistrationStore store = new RegistrationStore(file.getPath())) {
+            assertEquals( 2, store.importText(text.toPath(), new CourseCatalog(catalogFile.getPath(), 0)) );
+            assertEquals( "34343434", store.findByCourse("IFT2255").get(0).getMatricule() );
+            assertEquals( "", store.findByMatricule("99999999").get(0).getCode() );
+            store.exportText(exported.toPath());
+        }
+        assertEquals( lines, Files.readAllLines(exported.toPath(), StandardCharsets.UTF_8) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFieldsWiderThanTheirRecordSlot() throws Exception
+    {
+        File file = tempFile(".bin");
+        file.delete();
+        try (RegistrationStore store = new RegistrationStore(file.getPath())) {
+            RegistrationForm form = form(1, "IFT1015");
+            form.setEmail(new String(new char[100]).replace('\0', 'a') + "@umontreal.ca");
+            store.append(form);
+        }
+    }
+}
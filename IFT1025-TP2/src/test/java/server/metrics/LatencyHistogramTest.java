@@ -0,0 +1,60 @@
+package server.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests de l'histogramme des durées.
+ */
+public class LatencyHistogramTest
+{
+    @Test
+    public void bucketsContainTheirValues()
+    {
+        for (long micros = 0; micros < 1_000_000; micros = micros * 3 / 2 + 1) {
+            int index = LatencyHistogram.index(micros);
+            assertTrue( micros <= LatencyHistogram.upperBound(index) );
+            assertTrue( index == 0 || micros > LatencyHistogram.upperBound(index - 1) );
+        }
+        assertTrue( LatencyHistogram.index(Long.MAX_VALUE) < 64 * 16 );
+    }
+
+    @Test
+    public void percentilesStayWithinOneSixteenth()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 10000; micros++) {
+            histogram.record(micros * 1000L);
+        }
+
+        assertEquals( 10000, histogram.getCount() );
+        assertEquals( 10000, histogram.getMax() );
+        assertEquals( 5000.5, histogram.getMean(), 0.001 );
+        assertEquals( 5000, histogram.percentile(0.50), 5000 / 16 );
+        assertEquals( 9900, histogram.percentile(0.99), 9900 / 16 );
+        assertEquals( 10000, histogram.percentile(1.0) );
+    }
+
+    @Test
+    public void recordsFromSeveralThreads() throws InterruptedException
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) histogram.record(i * 1000L);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertEquals( 80000, histogram.getCount() );
+        assertEquals( 9999, histogram.getMax() );
+    }
+}
@@ -0,0 +1,73 @@
+package server.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+/**
+ * Tests des mesures d'exécution du serveur.
+ */
+public class ServerMetricsTest
+{
+    @Test
+    public void reportsCommandsAndGaugesAsJson()
+    {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.connectionOpened();
+        metrics.connectionOpened();
+        metrics.connectionClosed();
+        metrics.connectionRejected();
+        metrics.requestStarted();
+        metrics.setQueueDepth(() -> 3);
+        metrics.command("CHARGER").record(2_000_000, true);
+        metrics.command("CHARGER").record(4_000_000, true);
+        metrics.command("INSCRIRE").record(1_000_000, false);
+
+        assertEquals( 2, metrics.command("CHARGER").getCount() );
+        assertEquals( 1, metrics.command("INSCRIRE").getErrors() );
+        String json = metrics.toJson();
+        assertTrue( json, json.contains("\"connections\":{\"active\":1,\"accepted\":2,\"rejected\":1}") );
+        assertTrue( json, json.contains("\"inFlight\":1,\"queued\":3") );
+        assertTrue( json, json.contains("\"CHARGER\":{\"count\":2,\"errors\":0,\"samples\":2,\"meanUs\":3000") );
+        assertTrue( json, json.contains("\"INSCRIRE\":{\"count\":1,\"errors\":1") );
+    }
+
+    @Test
+    public void countsBytesThroughWrappedStreams() throws IOException
+    {
+        ServerMetrics metrics = new ServerMetrics();
+        InputStream in = metrics.countInput(new ByteArrayInputStream(new byte[100]));
+        OutputStream out = metrics.countOutput(new ByteArrayOutputStream());
+        in.read();
+        in.read(new byte[64]);
+        out.write(new byte[10]);
+        out.write(1);
+
+        assertEquals( 65, metrics.getBytesIn() );
+        assertEquals( 11, metrics.getBytesOut() );
+    }
+
+    @Test
+    public void dumpsToFile() throws IOException
+    {
+        Path file = Files.createTempFile("metriques", ".json");
+        file.toFile().deleteOnExit();
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.command("PING").record(1000, true);
+        metrics.dump(file);
+
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue( content.startsWith("{\"timestamp\":") );
+        assertTrue( content.contains("\"PING\":{\"count\":1") );
+    }
+}
@@ -0,0 +1,173 @@
+package server.multithreading;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import client.Client;
+import server.CourseCatalog;
+import server.RegistrationJournal;
+import server.ServerConfig;
+import server.ServerContext;
+import server.models.RegistrationForm;
+
+/**
+ * Tests du serveur multithread dans ses deux modes d'exécution.
+ */
+public class ServerMultithreadingTest
+{
+    private static Client start(String execution, ServerConfig.Execution expected) throws IOException
+    {
+        File catalog = File.createTempFile("cours", ".txt");
+        File registrations = File.createTempFile("inscription", ".txt");
+        catalog.deleteOnExit();
+        registrations.deleteOnExit();
+        Files.write(catalog.toPath(), "IFT1025\tProgrammation2\tHiver\n".getBytes(StandardCharsets.UTF_8));
+
+        ServerConfig config = ServerConfig.parse(new String[] {"--execution", execution});
+        ServerContext context = new ServerContext(config, new CourseCatalog(catalog.getPath(), 0),
+                new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.NONE, 0));
+        ServerSocket socket = new ServerSocket(0);
+        ServerMultithreading server = new ServerMultithreading(socket, context);
+        assertEquals( expected, server.getExecution() );
+        Thread thread = new Thread(server);
+        thread.setDaemon(true);
+        thread.start();
+        return new Client("127.0.0.1", socket.getLocalPort());
+    }
+
+    @Test
+    public void drainsInFlightRegistrationsBeforeStopping() throws Exception
+    {
+        File catalog = File.createTempFile("cours", ".txt");
+        File registrations = File.createTempFile("inscription", ".txt");
+        catalog.deleteOnExit();
+        registrations.deleteOnExit();
+        Files.write(catalog.toPath(), "IFT1025\tProgrammation2\tHiver\n".getBytes(StandardCharsets.UTF_8));
+        ServerContext context = new ServerContext(ServerConfig.parse(new String[0]),
+                new CourseCatalog(catalog.getPath(), 0),
+                new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.INTERVAL, 60000));
+        ServerSocket socket = new ServerSocket(0);
+        Thread thread = new Thread(new ServerMultithreading(socket, context));
+        thread.setDaemon(true);
+        thread.start();
+
+        Client client = new Client("127.0.0.1", socket.getLocalPort());
+        CompletableFuture<Void> registered = client.registrationAsync(new RegistrationForm("Ada", "Lovelace",
+                "ada@umontreal.ca", "20001234", client.findCourse("IFT1025")));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (context.getMetrics().getInFlightRequests() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        String report = context.getShutdown().stop(5000);
+        assertTrue( report.contains("\"drained\":1,\"abandoned\":0") );
+        assertTrue( report.contains("\"unclosed\":0,\"journal\":\"synchronisé\"") );
+        registered.get(5, TimeUnit.SECONDS);
+        assertTrue( new String(Files.readAllBytes(registrations.toPath()), StandardCharsets.UTF_8)
+                .contains("20001234") );
+        thread.join(5000);
+        assertFalse( thread.isAlive() );
+        assertNull( new Client("127.0.0.1", socket.getLocalPort()).findCourse("IFT1025") );
+    }
+
+    @Test
+    public void closesTheConnectionOfALegacyClientAfterItsCommand() throws Exception
+    {
+        File catalog = File.createTempFile("cours", ".txt");
+        File registrations = File.createTempFile("inscription", ".txt");
+        catalog.deleteOnExit();
+        registrations.deleteOnExit();
+        Files.write(catalog.toPath(), "IFT1025\tProgrammation2\tHiver\n".getBytes(StandardCharsets.UTF_8));
+        ServerContext context = new ServerContext(ServerConfig.parse(new String[0]),
+                new CourseCatalog(catalog.getPath(), 0),
+                new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.NONE, 0));
+        ServerSocket socket = new ServerSocket(0);
+        Thread thread = new Thread(new ServerMultithreading(socket, context));
+        thread.setDaemon(true);
+        thread.start();
+
+        try (Socket legacy = new Socket("127.0.0.1", socket.getLocalPort())) {
+            legacy.setSoTimeout(2000);
+            ObjectOutputStream out = new ObjectOutputStream(legacy.getOutputStream());
+            out.writeObject(ServerMultithreading.LOAD_COMMAND + " Hiver");
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(legacy.getInputStream());
+            assertEquals( 1, ((List<?>) in.readObject()).size() );
+            try {
+                in.readObject();
+                fail();
+            } catch (EOFException e) {
+                // le serveur a fermé la connexion après sa réponse
+            }
+        }
+        context.getShutdown().stop(1000);
+    }
+
+    @Test
+    public void servesClientsWithTheWorkerPool() throws IOException
+    {
+        Client client = start("pool", ServerConfig.Execution.POOL);
+
+        assertEquals( "Programmation2", client.findCourse("IFT1025").getName() );
+        client.disconnect();
+    }
+
+    @Test
+    public void freesWorkersHeldByIdleConnections() throws Exception
+    {
+        File catalog = File.createTempFile("cours", ".txt");
+        File registrations = File.createTempFile("inscription", ".txt");
+        catalog.deleteOnExit();
+        registrations.deleteOnExit();
+        Files.write(catalog.toPath(), "IFT1025\tProgrammation2\tHiver\n".getBytes(StandardCharsets.UTF_8));
+        ServerConfig config = ServerConfig.parse(new String[] {"--threads", "2", "--worker-idle-timeout", "200"});
+        ServerContext context = new ServerContext(config, new CourseCatalog(catalog.getPath(), 0),
+                new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.NONE, 0));
+        ServerSocket socket = new ServerSocket(0);
+        Thread thread = new Thread(new ServerMultithreading(socket, context));
+        thread.setDaemon(true);
+        thread.start();
+
+        long start = System.currentTimeMillis();
+        Client[] clients = new Client[6];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new Client("127.0.0.1", socket.getLocalPort());
+            assertEquals( "Programmation2", clients[i].findCourse("IFT1025").getName() );
+        }
+        assertTrue( System.currentTimeMillis() - start < config.getWaitTimeout() );
+        assertEquals( 0, context.getMetrics().getRejectedConnections() );
+        for (Client client : clients) client.disconnect();
+        context.getShutdown().stop(1000);
+    }
+
+    @Test
+    public void servesClientsOnVirtualThreadsOrFallsBack() throws IOException
+    {
+        ServerConfig.Execution expected = Runtime.version().feature() >= 21
+                ? ServerConfig.Execution.VIRTUAL : ServerConfig.Execution.POOL;
+        Client client = start("virtual", expected);
+
+        assertNotNull( client.findCourse("IFT1025") );
+        assertEquals( 1, client.loadCourses("Hiver").size() );
+        client.disconnect();
+    }
+}
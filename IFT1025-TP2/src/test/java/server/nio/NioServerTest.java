@@ -0,0 +1,205 @@
+package server.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import client.Client;
+import client.CourseStream;
+import server.AdmissionControl;
+import server.CourseCatalog;
+import server.RegistrationJournal;
+import server.ServerConfig;
+import server.ServerContext;
+import server.models.Course;
+import server.models.CourseList;
+import server.models.RegistrationForm;
+import server.protocol.Request;
+import server.protocol.Response;
+import server.protocol.Transport;
+import server.protocol.WireFormat;
+
+/**
+ * Tests du serveur à boucles d'événements.
+ */
+public class NioServerTest
+{
+    private static int port;
+    private static File registrations;
+
+    @BeforeClass
+    public static void startServer() throws IOException
+    {
+        File catalog = File.createTempFile("cours", ".txt");
+        registrations = File.createTempFile("inscription", ".txt");
+        catalog.deleteOnExit();
+        registrations.deleteOnExit();
+        Files.write(catalog.toPath(), ("IFT1015\tProgrammation1\tAutomne\nIFT1025\tProgrammation2\tHiver\n"
+                + "IFT2255\tGenie_Logiciel\tAutomne\n").getBytes(StandardCharsets.UTF_8));
+
+        ServerConfig config = ServerConfig.parse(new String[] {"--loops", "2", "--threads", "2"});
+        ServerContext context = new ServerContext(config, new CourseCatalog(catalog.getPath(), 0),
+                new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.NONE, 0));
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(new InetSocketAddress("127.0.0.1", 0));
+        port = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        Thread thread = new Thread(new NioServer(channel, context));
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Test
+    public void limitsConnectionsOnlyWhenAsked() throws IOException
+    {
+        File catalog = File.createTempFile("cours", ".txt");
+        catalog.deleteOnExit();
+        for (String[] args : new String[][] {{}, {"--max-connections", "8"}}) {
+            ServerContext context = new ServerContext(ServerConfig.parse(args), new CourseCatalog(catalog.getPath(), 0),
+                    new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.NONE, 0));
+            try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+                new NioServer(channel, context);
+            }
+            context.getJournal().close();
+            assertEquals( args.length == 0 ? AdmissionControl.UNLIMITED : 8, context.getAdmission().getAvailable() );
+        }
+    }
+
+    @Test
+    public void answersCommandsAndPipelinedRequests() throws IOException
+    {
+        Client client = new Client("127.0.0.1", port);
+
+        assertEquals( "Programmation2", client.findCourse("IFT1025").getName() );
+        assertNull( client.findCourse("IFT9999") );
+        LinkedHashMap<String, ArrayList<Course>> courses = client.loadAllCourses(new String[] {"Automne", "Hiver"});
+        assertEquals( 2, courses.get("Automne").size() );
+        assertEquals( 1, courses.get("Hiver").size() );
+        Course course = client.findCourse("IFT1015");
+        assertTrue( client.registration(new RegistrationForm("Ada", "Lovelace", "ada@umontreal.ca", "20001234",
+                course)) );
+        assertTrue( new String(Files.readAllBytes(registrations.toPath()), StandardCharsets.UTF_8)
+                .contains("20001234") );
+        assertTrue( client.stats().contains("\"TROUVER\":{\"count\":") );
+        client.disconnect();
+    }
+
+    @Test
+    public void pagesAndStreamsCourses() throws IOException
+    {
+        Client client = new Client("127.0.0.1", port, WireFormat.BINARY, 1, Client.DEFAULT_IDLE_TIMEOUT);
+
+        CourseList page = client.loadCoursesPage("Automne", 1, 5);
+        assertEquals( 1, page.size() );
+        assertEquals( "IFT2255", page.get(0).getCode() );
+        assertEquals( 2, page.getTotal() );
+        try (CourseStream stream = client.streamCourses("Automne", 1)) {
+            assertEquals( "IFT1015", stream.next().getCode() );
+            assertEquals( 2, stream.getTotal() );
+            assertEquals( "IFT2255", stream.next().getCode() );
+            assertFalse( stream.hasNext() );
+        }
+        try (CourseStream stream = client.streamCourses("Automne", 1)) {
+            assertTrue( stream.hasNext() );
+        }
+        assertEquals( 2, client.loadCourses("Automne").size() );
+        client.disconnect();
+    }
+
+    @Test
+    public void servesManyConnectionsWithFewThreads() throws IOException
+    {
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Client client = new Client("127.0.0.1", port, WireFormat.BINARY, 1, Client.DEFAULT_IDLE_TIMEOUT);
+            assertEquals( 2, client.loadCourses("Automne").size() );
+            clients.add(client);
+        }
+        for (Client client : clients) {
+            assertEquals( 1, client.loadCourses("Hiver").size() );
+            client.disconnect();
+        }
+    }
+
+    @Test
+    public void answersBusyToConnectionsBeyondTheLimit() throws IOException
+    {
+        ServerConfig config = ServerConfig.parse(new String[] {"--max-connections", "1", "--queue", "1",
+                "--wait-timeout", "100", "--retry-after", "300"});
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(new InetSocketAddress("127.0.0.1", 0));
+        Thread thread = new Thread(new NioServer(channel, new ServerContext(config,
+                new CourseCatalog(File.createTempFile("cours", ".txt").getPath(), 0),
+                new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.NONE, 0))));
+        thread.setDaemon(true);
+        thread.start();
+        int limited = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+
+        Client holder = new Client("127.0.0.1", limited, WireFormat.BINARY, 1, Client.DEFAULT_IDLE_TIMEOUT);
+        assertEquals( 0, holder.loadCourses("Automne").size() );
+        try (Socket socket = new Socket("127.0.0.1", limited)) {
+            Transport transport = Transport.connect(socket, WireFormat.BINARY);
+            transport.writeRequest(new Request(1, "CHARGER Automne", null));
+            Response busy = transport.readResponse();
+            assertEquals( Response.BUSY, busy.getStatus() );
+            assertEquals( "300", busy.getPayload() );
+            assertNull( transport.readResponse() );
+        }
+        holder.disconnect();
+        Client next = new Client("127.0.0.1", limited);
+        assertEquals( 0, next.loadCourses("Automne").size() );
+        next.disconnect();
+    }
+
+    @Test
+    public void stopsOnTheAdminCommand() throws Exception
+    {
+        ServerConfig config = ServerConfig.parse(new String[] {"--admin-token", "secret"});
+        ServerContext context = new ServerContext(config,
+                new CourseCatalog(File.createTempFile("cours", ".txt").getPath(), 0),
+                new RegistrationJournal(registrations.getPath(), RegistrationJournal.Durability.NONE, 0));
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(new InetSocketAddress("127.0.0.1", 0));
+        Thread thread = new Thread(new NioServer(channel, context));
+        thread.setDaemon(true);
+        thread.start();
+        int stopped = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+
+        Client client = new Client("127.0.0.1", stopped);
+        assertFalse( client.shutdownServer("mauvais", 1000) );
+        assertTrue( client.shutdownServer("secret", 1000) );
+        assertTrue( context.getShutdown().awaitStop().contains("\"unclosed\":0") );
+        thread.join(5000);
+        assertFalse( thread.isAlive() );
+        assertFalse( channel.isOpen() );
+        client.disconnect();
+    }
+
+    @Test
+    public void closesSerializationClients() throws IOException
+    {
+        boolean closed;
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            Transport transport = Transport.connect(socket, WireFormat.SERIALIZATION);
+            transport.writeRequest(new Request(1, "CHARGER Automne", null));
+            closed = transport.readResponse() == null;
+        } catch (IOException e) {
+            closed = true;
+        }
+        assertTrue( closed );
+    }
+}
@@ -0,0 +1,152 @@
+package server.protocol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import server.models.Course;
+import server.models.CourseList;
+import server.models.RegistrationForm;
+
+/**
+ * Tests du format binaire des messages.
+ */
+public class BinaryCodecTest
+{
+    private static ByteBuffer body(byte[] frame)
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        assertEquals( frame.length - 4, buffer.getInt() );
+        return buffer.slice();
+    }
+
+    @Test
+    public void roundTripsRegistrationRequest() throws IOException
+    {
+        RegistrationForm form = new RegistrationForm("Émilie", "Roy", "e@umontreal.ca", "20231234",
+                new Course("Programmation2", "IFT1025", "Hiver"));
+        Request decoded = BinaryCodec.decodeRequest(body(BinaryCodec.encode(new Request(7, "INSCRIRE", form))));
+
+        assertEquals( 7, decoded.getId() );
+        assertEquals( "INSCRIRE", decoded.getLine() );
+        RegistrationForm copy = (RegistrationForm) decoded.getPayload();
+        assertEquals( "Émilie", copy.getPrenom() );
+        assertEquals( "20231234", copy.getMatricule() );
+        assertEquals( "IFT1025", copy.getCourse().getCode() );
+    }
+
+    @Test
+    public void roundTripsVersionedCourseListAndNotModifiedResponses() throws IOException
+    {
+        ArrayList<Course> courses = new ArrayList<>();
+        courses.add(new Course("Programmation1", "IFT1015", "Automne"));
+        CourseList list = new CourseList(courses, -7263412345678L);
+        Response decoded = BinaryCodec.decodeResponse(body(BinaryCodec.encode(new Response(5, Response.OK, list))));
+
+        CourseList copy = (CourseList) decoded.getPayload();
+        assertEquals( -7263412345678L, copy.getVersion() );
+        assertEquals( "IFT1015", copy.get(0).getCode() );
+        Response notModified = BinaryCodec.decodeResponse(body(BinaryCodec.encode(
+                new Response(6, Response.NOT_MODIFIED, null))));
+        assertEquals( Response.NOT_MODIFIED, notModified.getStatus() );
+        assertFalse( notModified.isError() );
+    }
+
+    @Test
+    public void roundTripsCoursePages() throws IOException
+    {
+        ArrayList<Course> courses = new ArrayList<>();
+        courses.add(new Course("Genie_Logiciel", "IFT2255", "Automne"));
+        CourseList page = new CourseList(courses, 42, 300, 1000);
+        Response decoded = BinaryCodec.decodeResponse(body(BinaryCodec.encode(
+                new Response(7, Response.PARTIAL, page))));
+
+        CourseList copy = (CourseList) decoded.getPayload();
+        assertEquals( Response.PARTIAL, decoded.getStatus() );
+        assertEquals( 42, copy.getVersion() );
+        assertEquals( 300, copy.getOffset() );
+        assertEquals( 1000, copy.getTotal() );
+        assertEquals( "IFT2255", copy.get(0).getCode() );
+    }
+
+    @Test
+    public void roundTripsRegistrationBatchesAndTheirResults() throws IOException
+    {
+        ArrayList<RegistrationForm> forms = new ArrayList<>();
+        Course course = new Course("Programmation1", "IFT1015", "Automne");
+        forms.add(new RegistrationForm("Ada", "Lovelace", "ada@umontreal.ca", "20001234", course));
+        forms.add(new RegistrationForm("Alan", "Turing", "alan@umontreal.ca", "20005678", null));
+        Request request = BinaryCodec.decodeRequest(body(BinaryCodec.encode(new Request(3, "INSCRIRE_LOT", forms))));
+
+        List<?> copy = (List<?>) request.getPayload();
+        assertEquals( 2, copy.size() );
+        assertEquals( "20005678", ((RegistrationForm) copy.get(1)).getMatricule() );
+        assertEquals( "IFT1015", ((RegistrationForm) copy.get(0)).getCourse().getCode() );
+        ArrayList<String> results = new ArrayList<>(Arrays.asList(Response.OK, "Refusé.", Response.OK));
+        Response response = BinaryCodec.decodeResponse(body(BinaryCodec.encode(new Response(3, Response.OK,
+                results))));
+        assertEquals( results, response.getPayload() );
+    }
+
+    @Test
+    public void encodesSharedPayloadsLikeOrdinaryResponses() throws IOException
+    {
+        ArrayList<Course> courses = new ArrayList<>();
+        courses.add(new Course("Programmation1", "IFT1015", "Automne"));
+        courses.add(new Course("Genie_Logiciel", "IFT2255", "Automne"));
+        EncodedPayload encoded = new EncodedPayload(Response.OK, courses);
+
+        for (long id : new long[] {Request.LEGACY_ID, 0, 1, 300, Long.MAX_VALUE}) {
+            byte[] expected = BinaryCodec.encode(new Response(id, Response.OK, courses));
+            assertArrayEquals( expected, BinaryCodec.encode(encoded.toResponse(id)) );
+            ByteArrayOutputStream joined = new ByteArrayOutputStream();
+            for (ByteBuffer buffer : BinaryCodec.encodeBuffers(encoded.toResponse(id))) {
+                joined.write(buffer.array(), buffer.position(), buffer.remaining());
+            }
+            assertArrayEquals( expected, joined.toByteArray() );
+        }
+        assertEquals( 2, ((ArrayList<?>) BinaryCodec.decodeResponse(body(BinaryCodec.encode(encoded.toResponse(9))))
+                .getPayload()).size() );
+    }
+
+    @Test
+    public void roundTripsCourseListResponse() throws IOException
+    {
+        ArrayList<Course> courses = new ArrayList<>();
+        courses.add(new Course("Programmation1", "IFT1015", "Automne"));
+        courses.add(new Course("Genie_Logiciel", "IFT2255", "Automne"));
+        Response decoded = BinaryCodec.decodeResponse(body(BinaryCodec.encode(new Response(3, Response.OK, courses))));
+
+        assertTrue( decoded.isOk() );
+        ArrayList<?> copy = (ArrayList<?>) decoded.getPayload();
+        assertEquals( 2, copy.size() );
+        assertEquals( "IFT2255", ((Course) copy.get(1)).getCode() );
+        assertNull( BinaryCodec.decodeResponse(body(BinaryCodec.encode(new Response(4, Response.OK, null))))
+                .getPayload() );
+    }
+
+    @Test
+    public void isSmallerThanJavaSerialization() throws IOException
+    {
+        ArrayList<Course> courses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) courses.add(new Course("Cours" + i, "IFT" + (1000 + i), "Automne"));
+
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(new Response(1, Response.OK, courses));
+        }
+        assertTrue( BinaryCodec.encode(new Response(1, Response.OK, courses)).length < serialized.size() / 2 );
+    }
+}